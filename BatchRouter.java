@@ -0,0 +1,107 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Solves many route queries against one network. Each query names a subset
+ * of the districts, its own start depot and its own mandatory sequences.
+ *
+ * The network's distance matrix is built once; a query gets a route view
+ * that slices its rows and columns from it (O(m^2) for m districts) instead
+ * of loading edges and running shortest paths again. The network must not
+ * be edited while a batch runs. Queries are spread over a fixed pool, one
+ * thread each, and every query gets its own seed split from the batch seed,
+ * so a batch is reproducible whatever the thread count. Queries of up to
+ * EXACT_LIMIT districts are solved exactly by Held-Karp.
+ */
+class BatchRouter {
+
+    static final int EXACT_LIMIT = 12;
+
+    private final TSPBangladeshImproved network;
+    private final int workers;
+
+    BatchRouter(TSPBangladeshImproved network, int workers) {
+        if (workers < 1) throw new IllegalArgumentException("workers must be >= 1");
+        this.network = network;
+        this.workers = workers;
+    }
+
+    BatchRouter(TSPBangladeshImproved network) {
+        this(network, Runtime.getRuntime().availableProcessors());
+    }
+
+    // One route request: visit districts from start, honouring sequences
+    static final class Query {
+        final String start;
+        final List<String> districts;
+        final List<List<String>> sequences;
+
+        Query(String start, List<String> districts, List<List<String>> sequences) {
+            this.start = Objects.requireNonNull(start);
+            this.districts = List.copyOf(districts);
+            this.sequences = List.copyOf(sequences);
+        }
+
+        Query(String start, List<String> districts) {
+            this(start, districts, List.of());
+        }
+    }
+
+    // Answer to a query: the route as district names, closed at its start
+    static final class Route {
+        final Query query;
+        final List<String> districts;
+        final double distance;
+
+        Route(Query query, List<String> districts, double distance) {
+            this.query = query;
+            this.districts = districts;
+            this.distance = distance;
+        }
+    }
+
+    /**
+     * Solve every query with the given engine and per-query budget. Routes
+     * are returned in query order. An invalid query (unknown district, or a
+     * sequence member outside the query) fails the batch with an
+     * IllegalArgumentException before any search starts.
+     */
+    List<Route> solveAll(List<Query> queries, TSPBangladeshImproved.Mode mode,
+                         TSPBangladeshImproved.Budget budget, long seed) {
+        SplittableRandom root = new SplittableRandom(seed);
+        List<TSPBangladeshImproved> views = new ArrayList<>(queries.size());
+        for (Query q : queries) {
+            TSPBangladeshImproved view = network.routeView(q.start, q.districts, q.sequences, root.nextLong());
+            view.setWorkers(1);
+            views.add(view);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        List<Future<Route>> futures = new ArrayList<>(queries.size());
+        try {
+            for (int i = 0; i < queries.size(); i++) {
+                Query query = queries.get(i);
+                TSPBangladeshImproved view = views.get(i);
+                futures.add(pool.submit(() -> solve(query, view, mode, budget)));
+            }
+            List<Route> routes = new ArrayList<>(queries.size());
+            for (Future<Route> f : futures) routes.add(f.get());
+            return routes;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Search interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search worker failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static Route solve(Query query, TSPBangladeshImproved view, TSPBangladeshImproved.Mode mode,
+                               TSPBangladeshImproved.Budget budget) {
+        TSPBangladeshImproved.Result result = view.n <= EXACT_LIMIT
+                ? view.solveExactly(view.allDistricts)
+                : view.solveWithin(mode, budget, null);
+        return new Route(query, view.toNames(result.tour), result.distance);
+    }
+}
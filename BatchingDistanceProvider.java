@@ -0,0 +1,96 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Splits a distance matrix request into provider-sized blocks and pipelines
+ * them with bounded concurrency. Blocks wait in a queue and are started
+ * without blocking the caller; each completion starts the next block.
+ * Only one thread drains the queue at a time, so a delegate that answers
+ * synchronously (a cache hit, a stub) loops rather than recursing.
+ */
+class BatchingDistanceProvider implements DistanceProvider {
+
+    private final DistanceProvider delegate;
+    private final int maxOrigins, maxDestinations, maxConcurrent;
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    BatchingDistanceProvider(DistanceProvider delegate, int maxOrigins, int maxDestinations, int maxConcurrent) {
+        if (maxOrigins < 1 || maxDestinations < 1 || maxConcurrent < 1) {
+            throw new IllegalArgumentException("Batch limits must be >= 1");
+        }
+        this.delegate = delegate;
+        this.maxOrigins = maxOrigins;
+        this.maxDestinations = maxDestinations;
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    @Override
+    public CompletableFuture<double[]> distances(List<String> origins, List<String> destinations) {
+        int cols = destinations.size();
+        double[] result = new double[origins.size() * cols];
+        List<CompletableFuture<Void>> blocks = new ArrayList<>();
+        for (int o = 0; o < origins.size(); o += maxOrigins) {
+            for (int d = 0; d < cols; d += maxDestinations) {
+                int o0 = o, d0 = d;
+                List<String> blockOrigins = origins.subList(o, Math.min(o + maxOrigins, origins.size()));
+                List<String> blockDestinations = destinations.subList(d, Math.min(d + maxDestinations, cols));
+                blocks.add(enqueue(blockOrigins, blockDestinations).thenAccept(block -> {
+                    int w = blockDestinations.size();
+                    for (int i = 0; i < blockOrigins.size(); i++) {
+                        System.arraycopy(block, i * w, result, (o0 + i) * cols + d0, w);
+                    }
+                }));
+            }
+        }
+        drain();
+        return CompletableFuture.allOf(blocks.toArray(new CompletableFuture<?>[0])).thenApply(v -> result);
+    }
+
+    private CompletableFuture<double[]> enqueue(List<String> origins, List<String> destinations) {
+        CompletableFuture<double[]> done = new CompletableFuture<>();
+        pending.add(() -> {
+            CompletableFuture<double[]> call;
+            try {
+                call = delegate.distances(origins, destinations);
+            } catch (RuntimeException e) {
+                call = CompletableFuture.failedFuture(e);
+            }
+            call.whenComplete((block, error) -> {
+                inFlight.decrementAndGet();
+                drain();
+                if (error != null) done.completeExceptionally(error);
+                else done.complete(block);
+            });
+        });
+        return done;
+    }
+
+    /**
+     * Start queued blocks while fewer than maxConcurrent are in flight. A
+     * call made while another is draining (including from a completion
+     * inside block.run()) returns at once; the drainer re-checks the queue
+     * before it lets go.
+     */
+    private void drain() {
+        do {
+            if (!draining.compareAndSet(false, true)) return;
+            try {
+                while (inFlight.get() < maxConcurrent) {
+                    Runnable block = pending.poll();
+                    if (block == null) break;
+                    inFlight.incrementAndGet();
+                    block.run();
+                }
+            } finally {
+                draining.set(false);
+            }
+        } while (!pending.isEmpty() && inFlight.get() < maxConcurrent);
+    }
+}
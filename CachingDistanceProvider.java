@@ -0,0 +1,127 @@
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Bounded LRU cache with a time-to-live in front of another provider.
+ * A request is answered from the cache when every pair is fresh; otherwise
+ * one batched request covering the missing origins and destinations is
+ * forwarded and its answers are cached.
+ */
+class CachingDistanceProvider implements DistanceProvider {
+
+    private static class Entry {
+        final double km;
+        final long expiresAt;
+
+        Entry(double km, long expiresAt) {
+            this.km = km;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    // Cache key; district names may contain any separator
+    private static final class Pair {
+        final String origin, destination;
+
+        Pair(String origin, String destination) {
+            this.origin = origin;
+            this.destination = destination;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Pair && ((Pair) o).origin.equals(origin) && ((Pair) o).destination.equals(destination);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * origin.hashCode() + destination.hashCode();
+        }
+    }
+
+    private final DistanceProvider delegate;
+    private final long ttlNanos;
+    private final Map<Pair, Entry> cache;
+    private long hits, misses;
+
+    CachingDistanceProvider(DistanceProvider delegate, int maxEntries, Duration ttl) {
+        this.delegate = delegate;
+        this.ttlNanos = ttl.toNanos();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Pair, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public CompletableFuture<double[]> distances(List<String> origins, List<String> destinations) {
+        int cols = destinations.size();
+        double[] result = new double[origins.size() * cols];
+        Set<String> missingOrigins = new LinkedHashSet<>();
+        Set<String> missingDestinations = new LinkedHashSet<>();
+        long now = System.nanoTime();
+        synchronized (cache) {
+            for (int i = 0; i < origins.size(); i++) {
+                for (int j = 0; j < cols; j++) {
+                    Entry e = cache.get(new Pair(origins.get(i), destinations.get(j)));
+                    if (e != null && e.expiresAt - now > 0) {
+                        result[i * cols + j] = e.km;
+                        hits++;
+                    } else {
+                        result[i * cols + j] = Double.NaN;
+                        missingOrigins.add(origins.get(i));
+                        missingDestinations.add(destinations.get(j));
+                        misses++;
+                    }
+                }
+            }
+        }
+        if (missingOrigins.isEmpty()) return CompletableFuture.completedFuture(result);
+
+        List<String> mo = new ArrayList<>(missingOrigins), md = new ArrayList<>(missingDestinations);
+        return delegate.distances(mo, md).thenApply(fetched -> {
+            Map<String, Integer> row = indexOf(mo), col = indexOf(md);
+            long expiresAt = System.nanoTime() + ttlNanos;
+            synchronized (cache) {
+                for (int i = 0; i < mo.size(); i++) {
+                    for (int j = 0; j < md.size(); j++) {
+                        // NaN answers are cached too, so unknown pairs are not asked again until they expire
+                        cache.put(new Pair(mo.get(i), md.get(j)), new Entry(fetched[i * md.size() + j], expiresAt));
+                    }
+                }
+            }
+            for (int i = 0; i < origins.size(); i++) {
+                Integer r = row.get(origins.get(i));
+                if (r == null) continue;
+                for (int j = 0; j < cols; j++) {
+                    Integer c = col.get(destinations.get(j));
+                    if (c != null && Double.isNaN(result[i * cols + j])) {
+                        result[i * cols + j] = fetched[r * md.size() + c];
+                    }
+                }
+            }
+            return result;
+        });
+    }
+
+    long hits() {
+        synchronized (cache) {
+            return hits;
+        }
+    }
+
+    long misses() {
+        synchronized (cache) {
+            return misses;
+        }
+    }
+
+    private static Map<String, Integer> indexOf(List<String> names) {
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) index.put(names.get(i), i);
+        return index;
+    }
+}
@@ -0,0 +1,129 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local stand-in for the Distance Matrix API, backed by a CSV file of
+ * origin,destination,km rows (a pair given once is served both ways).
+ * It answers /maps/api/distancematrix/json in the same shape as the real
+ * service, with NOT_FOUND elements for unknown pairs, so the HTTP provider,
+ * batching and cache can be exercised offline.
+ *
+ * Run: java DistanceMatrixStubServer distances.csv [port]
+ */
+class DistanceMatrixStubServer implements AutoCloseable {
+
+    static final String PATH = "/maps/api/distancematrix/json";
+
+    private final HttpServer server;
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+    private final Map<String, Map<String, Double>> distances = new HashMap<>(); // origin -> destination -> km
+    private final LongAdder requests = new LongAdder(); // handlers run on a pool
+
+    private DistanceMatrixStubServer(Path csv, int port) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            String[] fields = new String[3];
+            String line;
+            int lineNo = 0;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#") || trimmed.startsWith("origin")) continue;
+                if (NetworkLoader.split(trimmed, fields) != 3) {
+                    throw new IllegalArgumentException(csv + ":" + lineNo + ": expected origin,destination,km");
+                }
+                double km = Double.parseDouble(fields[2]);
+                distances.computeIfAbsent(fields[0], k -> new HashMap<>()).put(fields[1], km);
+                distances.computeIfAbsent(fields[1], k -> new HashMap<>()).putIfAbsent(fields[0], km);
+            }
+        }
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.createContext(PATH, this::handle);
+        server.setExecutor(pool);
+    }
+
+    /** Start serving the file on the given port (0 picks a free one) */
+    static DistanceMatrixStubServer start(Path csv, int port) throws IOException {
+        DistanceMatrixStubServer stub = new DistanceMatrixStubServer(csv, port);
+        stub.server.start();
+        return stub;
+    }
+
+    URI endpoint() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + PATH);
+    }
+
+    long requests() {
+        return requests.sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        pool.shutdown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.increment();
+        Map<String, String> query = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw != null) {
+            for (String part : raw.split("&")) {
+                int eq = part.indexOf('=');
+                if (eq > 0) {
+                    query.put(part.substring(0, eq), URLDecoder.decode(part.substring(eq + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        String[] origins = query.getOrDefault("origins", "").split("\\|");
+        String[] destinations = query.getOrDefault("destinations", "").split("\\|");
+
+        StringBuilder json = new StringBuilder("{\"status\":\"OK\",\"rows\":[");
+        for (int i = 0; i < origins.length; i++) {
+            if (i > 0) json.append(',');
+            json.append("{\"elements\":[");
+            for (int j = 0; j < destinations.length; j++) {
+                if (j > 0) json.append(',');
+                Double km = origins[i].equals(destinations[j]) ? Double.valueOf(0.0)
+                        : distances.getOrDefault(origins[i], Map.of()).get(destinations[j]);
+                if (km == null) {
+                    json.append("{\"status\":\"NOT_FOUND\"}");
+                } else {
+                    json.append("{\"status\":\"OK\",\"distance\":{\"value\":")
+                        .append(Math.round(km * 1000)).append("}}");
+                }
+            }
+            json.append("]}");
+        }
+        json.append("]}");
+
+        byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java DistanceMatrixStubServer distances.csv [port]");
+            return;
+        }
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 8089;
+        DistanceMatrixStubServer stub = start(Path.of(args[0]), port);
+        System.out.println("Serving " + args[0] + " at " + stub.endpoint());
+    }
+}
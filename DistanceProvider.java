@@ -0,0 +1,30 @@
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Source of road distances between districts, queried in matrix-shaped
+ * batches. The result is row-major: result[i * destinations.size() + j] is
+ * the distance in km from origins.get(i) to destinations.get(j), or NaN if
+ * the provider has no answer for that pair.
+ */
+interface DistanceProvider {
+
+    CompletableFuture<double[]> distances(List<String> origins, List<String> destinations);
+
+    /**
+     * Split requests into blocks of at most maxOrigins x maxDestinations and
+     * keep at most maxConcurrent blocks in flight
+     */
+    default DistanceProvider batched(int maxOrigins, int maxDestinations, int maxConcurrent) {
+        return new BatchingDistanceProvider(this, maxOrigins, maxDestinations, maxConcurrent);
+    }
+
+    /**
+     * Answer repeated pairs from a bounded LRU cache whose entries expire
+     * after ttl; only missing pairs reach this provider
+     */
+    default DistanceProvider cached(int maxEntries, Duration ttl) {
+        return new CachingDistanceProvider(this, maxEntries, ttl);
+    }
+}
@@ -0,0 +1,115 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * End-to-end check of the distance providers against DistanceMatrixStubServer.
+ *
+ * The stub serves the road distances of the 64 districts, minus a few pairs
+ * it answers as NOT_FOUND. The HTTP provider is then batched and cached the
+ * way applyDistances would use it, and the answers, the number of requests
+ * the stub saw and the cache counters are compared with what they should be.
+ * The project has no test framework; like SolverBenchmark this runs by hand
+ * and exits with status 1 if a check fails.
+ *
+ * Run: java DistanceProviderCheck
+ */
+class DistanceProviderCheck {
+
+    private static final int BLOCK = 10;
+    private static final int MISSING_EVERY = 17; // every 17th pair is left out of the stub's file
+
+    private static int failures;
+
+    public static void main(String[] args) throws IOException {
+        TSPBangladeshImproved tsp = new TSPBangladeshImproved(42L);
+        List<String> districts = tsp.allDistricts;
+        int n = districts.size();
+
+        Path csv = Files.createTempFile("distances", ".csv");
+        try {
+            StringBuilder rows = new StringBuilder("origin,destination,km\n");
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    if (!isMissing(i, j, n)) {
+                        rows.append(quote(districts.get(i))).append(',').append(quote(districts.get(j))).append(',')
+                            .append(tsp.distance(i, j)).append('\n');
+                    }
+                }
+            }
+            Files.writeString(csv, rows);
+
+            try (DistanceMatrixStubServer stub = DistanceMatrixStubServer.start(csv, 0)) {
+                CachingDistanceProvider cache = new CachingDistanceProvider(
+                        new HttpDistanceMatrixProvider(stub.endpoint(), null).batched(BLOCK, BLOCK, 4),
+                        n * n, Duration.ofHours(1));
+
+                double[] first = cache.distances(districts, districts).join();
+                int blocks = ((n + BLOCK - 1) / BLOCK) * ((n + BLOCK - 1) / BLOCK);
+                check(stub.requests() == blocks, "batching: " + stub.requests() + " requests, expected " + blocks);
+                checkMatrix(tsp, first);
+
+                double[] second = cache.distances(districts, districts).join();
+                check(stub.requests() == blocks, "cache: a repeated request reached the stub");
+                check(Arrays.equals(first, second), "cache: repeated answers differ");
+                check(cache.hits() == (long) n * n && cache.misses() == (long) n * n,
+                        "cache: hits=" + cache.hits() + " misses=" + cache.misses() + ", expected " + n * n + " each");
+
+                List<String> someOrigins = districts.subList(0, BLOCK / 2);
+                double[] partial = cache.distances(someOrigins, districts).join();
+                check(stub.requests() == blocks, "cache: a sub-matrix of cached pairs reached the stub");
+                check(Arrays.equals(partial, Arrays.copyOf(first, partial.length)), "cache: sub-matrix answers differ");
+            }
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+
+        // Names containing the old key separator must not collide
+        DistanceProvider echo = (origins, destinations) -> {
+            double[] km = new double[origins.size() * destinations.size()];
+            for (int i = 0; i < origins.size(); i++) {
+                for (int j = 0; j < destinations.size(); j++) {
+                    km[i * destinations.size() + j] = origins.get(i).length() * 100 + destinations.get(j).length();
+                }
+            }
+            return java.util.concurrent.CompletableFuture.completedFuture(km);
+        };
+        DistanceProvider cached = echo.cached(16, Duration.ofHours(1));
+        double ab = cached.distances(List.of("a|b"), List.of("c")).join()[0];
+        double bc = cached.distances(List.of("a"), List.of("b|c")).join()[0];
+        check(ab == 301 && bc == 103, "cache: keys a|b,c and a,b|c collide (" + ab + ", " + bc + ")");
+
+        System.out.println(failures == 0 ? "All distance provider checks passed" : failures + " check(s) failed");
+        if (failures > 0) System.exit(1);
+    }
+
+    // Served distances come back rounded to metres; left-out pairs come back as NaN
+    private static void checkMatrix(TSPBangladeshImproved tsp, double[] km) {
+        int n = tsp.n, wrong = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                double expected = i == j ? 0.0 : isMissing(Math.min(i, j), Math.max(i, j), n) ? Double.NaN
+                        : Math.round(tsp.distance(Math.min(i, j), Math.max(i, j)) * 1000) / 1000.0;
+                double got = km[i * n + j];
+                if (Double.isNaN(expected) ? !Double.isNaN(got) : Math.abs(got - expected) > 1e-9) wrong++;
+            }
+        }
+        check(wrong == 0, "http: " + wrong + " of " + n * n + " answers differ from the served file");
+    }
+
+    private static boolean isMissing(int i, int j, int n) {
+        return (i * n + j) % MISSING_EVERY == 0;
+    }
+
+    private static String quote(String name) {
+        return "\"" + name + "\"";
+    }
+
+    private static void check(boolean ok, String message) {
+        if (ok) return;
+        failures++;
+        System.out.println("FAIL " + message);
+    }
+}
@@ -0,0 +1,107 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Versioned binary snapshot of the district index and distance matrix, so
+ * short-lived solver processes can skip rebuilding the matrix. Coordinates
+ * are not stored: they are needed for the fingerprint before the snapshot
+ * can be checked, so they are always loaded with the network.
+ *
+ * Layout (big-endian):
+ *   int    MAGIC
+ *   int    VERSION
+ *   long   fingerprint of the districts, coordinates and edges it was built from
+ *   int    n
+ *   n x    (short length, UTF-8 bytes) district names in id order
+ *   n*n x  double distances, row-major
+ *   long   CRC32 of all bytes above
+ *
+ * A snapshot whose version, fingerprint, names or checksum do not match is
+ * treated as stale and rebuilt.
+ */
+class DistanceSnapshot {
+
+    private static final int MAGIC = 0x5453504D; // "TSPM"
+    // Bump whenever the file layout or the way distances are computed changes
+    // 2: one-way roads and asymmetric distances; coordinates no longer stored
+    private static final int VERSION = 2;
+
+    private DistanceSnapshot() {}
+
+    /**
+     * Fill matrix from the snapshot at path. Returns false if the file is
+     * missing, unreadable or stale for the given districts and fingerprint.
+     */
+    static boolean load(Path path, long fingerprint, List<String> districts, double[] matrix) {
+        if (!Files.isRegularFile(path)) return false;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 28) return false;
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buf.order(ByteOrder.BIG_ENDIAN);
+
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION) return false;
+            if (buf.getLong() != fingerprint) return false;
+            int n = buf.getInt();
+            if (n != districts.size() || (long) n * n != matrix.length) return false;
+            for (int i = 0; i < n; i++) {
+                byte[] name = new byte[buf.getShort() & 0xFFFF];
+                buf.get(name);
+                if (!districts.get(i).equals(new String(name, StandardCharsets.UTF_8))) return false;
+            }
+            int matrixStart = buf.position();
+            buf.asDoubleBuffer().get(matrix);
+            buf.position(matrixStart + matrix.length * 8);
+
+            int payloadEnd = buf.position();
+            long stored = buf.getLong();
+            CRC32 crc = new CRC32();
+            ByteBuffer payload = buf.duplicate();
+            payload.position(0).limit(payloadEnd);
+            crc.update(payload);
+            return crc.getValue() == stored;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Write a snapshot atomically (temp file + move) so concurrent solver
+     * processes never map a half-written file.
+     */
+    static void write(Path path, long fingerprint, List<String> districts, double[] matrix) throws IOException {
+        Path dir = path.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(dir, path.getFileName().toString(), ".tmp");
+        try {
+            CRC32 crc = new CRC32();
+            try (OutputStream file = Files.newOutputStream(tmp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                         new CheckedOutputStream(file, crc), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(fingerprint);
+                out.writeInt(districts.size());
+                for (String d : districts) {
+                    byte[] name = d.getBytes(StandardCharsets.UTF_8);
+                    out.writeShort(name.length);
+                    out.write(name);
+                }
+                for (double v : matrix) out.writeDouble(v);
+                out.flush();
+                // The checksum trails the payload and is not part of it
+                new DataOutputStream(file).writeLong(crc.getValue());
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+}
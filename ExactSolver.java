@@ -0,0 +1,624 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+/**
+ * Exact solving and lower bounds.
+ *
+ * Up to HELD_KARP_MAX districts the Held-Karp bitmask dynamic program is
+ * used: best[S][j] is the shortest path from the start through the set S
+ * ending at j. Each subset size is a layer whose subsets are filled in
+ * parallel. A mandatory sequence is a precedence constraint: a district can
+ * only be appended once its predecessor in the sequence is in S.
+ *
+ * Larger instances use branch-and-bound over Held-Karp 1-tree bounds
+ * (Volgenant-Jonker): a minimum spanning tree on all districts but the start,
+ * plus the start's two cheapest edges, with node penalties tuned by
+ * subgradient optimization. A node is split on a district of 1-tree degree
+ * above two (include both of two free tree edges, include one and exclude
+ * the other, or exclude the first). When the 1-tree is a tour that breaks a
+ * mandatory sequence, the node is split on the edges of that tour instead;
+ * the bound itself ignores the sequences, so it closes slowly on instances
+ * whose sequences force long detours. On asymmetric distances the 1-trees
+ * price each edge at its cheaper direction; a 1-tree tour then closes its
+ * node only if one feasible direction costs no more than the bound, and is
+ * otherwise split on like an infeasible one.
+ * Subproblems run as fork/join tasks sharing the upper bound. When the budget
+ * runs out, the smallest bound among the unexplored subproblems is a valid
+ * lower bound, so every run reports an optimality gap.
+ */
+class ExactSolver {
+
+    static final int HELD_KARP_MAX = 20;
+    // Time budget of the command line's EXACT mode when none is given
+    static final long DEFAULT_MILLIS = 10_000;
+    private static final int ROOT_ITERATIONS = 1000;
+    private static final int NODE_ITERATIONS = 30;
+    private static final int UPPER_BOUND_KICKS = 1000;
+    // Restarts for the starting tour: 200 on the 64 districts, fewer (down to 20) on larger instances
+    private static final int UPPER_BOUND_RESTART_DISTRICTS = 12_800;
+    private static final double BIG = 1e9;
+    private static final byte FREE = 0, REQUIRED = 1, FORBIDDEN = 2;
+
+    private final TSPBangladeshImproved tsp;
+    private final int n;
+    private final int start;
+
+    ExactSolver(TSPBangladeshImproved tsp) {
+        this.tsp = tsp;
+        this.n = tsp.n;
+        this.start = tsp.idOf(tsp.startDistrict);
+    }
+
+    /**
+     * Outcome of an exact run: the best tour, a lower bound on the optimum
+     * and whether the search finished (the tour is then optimal).
+     */
+    static final class Outcome {
+        final TSPBangladeshImproved.Result best;
+        final double lowerBound;
+        final boolean optimal;
+        final long nodes;
+
+        Outcome(TSPBangladeshImproved.Result best, double lowerBound, boolean optimal, long nodes) {
+            this.best = best;
+            this.lowerBound = lowerBound;
+            this.optimal = optimal;
+            this.nodes = nodes;
+        }
+
+        // (best - lower bound) / lower bound
+        double gap() {
+            return (best.distance - lowerBound) / lowerBound;
+        }
+    }
+
+    // ---------------------------------------------------------------- Held-Karp
+
+    /**
+     * Optimal tour through the given districts (the start is added if
+     * missing), honouring the mandatory sequences among them. The returned
+     * tour only contains those districts.
+     */
+    TSPBangladeshImproved.Result heldKarp(int[] districts) {
+        int[] others = Arrays.stream(districts).filter(d -> d != start).distinct().toArray();
+        int m = others.length;
+        if (m + 1 > HELD_KARP_MAX) {
+            throw new IllegalArgumentException("Held-Karp is limited to " + HELD_KARP_MAX + " districts, got " + (m + 1));
+        }
+        if (m == 0) {
+            return new TSPBangladeshImproved.Result(new TSPBangladeshImproved.Tour(new int[] {start}, n), 0.0);
+        }
+
+        // pred[j] = bit of the district that must come before others[j]
+        int[] bit = new int[n];
+        Arrays.fill(bit, -1);
+        for (int j = 0; j < m; j++) bit[others[j]] = j;
+        int[] pred = new int[m];
+        for (int[] sequence : tsp.sequenceIds()) {
+            int previous = -1;
+            for (int d : sequence) {
+                if (bit[d] >= 0 && previous >= 0) pred[bit[d]] |= 1 << bit[previous];
+                if (bit[d] >= 0) previous = d;
+            }
+        }
+
+        int full = (1 << m) - 1;
+        double[] best = new double[(full + 1) * m];
+        Arrays.fill(best, Double.POSITIVE_INFINITY);
+        for (int j = 0; j < m; j++) {
+            if (pred[j] == 0) best[(1 << j) * m + j] = tsp.distance(start, others[j]);
+        }
+        for (int size = 2; size <= m; size++) {
+            int[] layer = subsetsOfSize(m, size);
+            IntStream.range(0, layer.length).parallel().forEach(s -> {
+                int set = layer[s];
+                for (int k = 0; k < m; k++) {
+                    if ((set & (1 << k)) == 0) continue;
+                    int rest = set & ~(1 << k);
+                    if ((pred[k] & ~rest) != 0) continue;
+                    double value = Double.POSITIVE_INFINITY;
+                    for (int j = 0; j < m; j++) {
+                        if ((rest & (1 << j)) == 0) continue;
+                        double v = best[rest * m + j] + tsp.distance(others[j], others[k]);
+                        if (v < value) value = v;
+                    }
+                    best[set * m + k] = value;
+                }
+            });
+        }
+
+        double length = Double.POSITIVE_INFINITY;
+        int last = -1;
+        for (int j = 0; j < m; j++) {
+            double v = best[full * m + j] + tsp.distance(others[j], start);
+            if (v < length) {
+                length = v;
+                last = j;
+            }
+        }
+        if (last < 0) throw new IllegalStateException("The mandatory sequences cannot all be honoured");
+
+        // Walk back through the table
+        int[] city = new int[m + 1];
+        city[0] = start;
+        int set = full;
+        for (int p = m; p >= 1; p--) {
+            city[p] = others[last];
+            int rest = set & ~(1 << last);
+            int previous = -1;
+            for (int j = 0; j < m && rest != 0; j++) {
+                if ((rest & (1 << j)) == 0) continue;
+                double v = best[rest * m + j] + tsp.distance(others[j], others[last]);
+                if (v == best[set * m + last]) {
+                    previous = j;
+                    break;
+                }
+            }
+            set = rest;
+            last = previous;
+        }
+        return new TSPBangladeshImproved.Result(new TSPBangladeshImproved.Tour(city, n), length);
+    }
+
+    // All m-bit masks with the given number of bits set (Gosper's hack)
+    private static int[] subsetsOfSize(int m, int size) {
+        long count = 1;
+        for (int i = 0; i < size; i++) count = count * (m - i) / (i + 1);
+        int[] out = new int[(int) count];
+        int set = (1 << size) - 1, k = 0;
+        while (set < (1 << m)) {
+            out[k++] = set;
+            int c = set & -set, r = set + c;
+            set = (((r ^ set) >>> 2) / c) | r;
+        }
+        return out;
+    }
+
+    // ---------------------------------------------------------------- 1-tree bounds
+
+    /**
+     * Held-Karp lower bound on the optimal tour over all districts (mandatory
+     * sequences only make tours longer, so it also bounds the constrained
+     * optimum). upperBound, e.g. a heuristic tour's length, steers the
+     * subgradient step size. Small instances get the exact optimum.
+     */
+    double lowerBound(double upperBound) {
+        if (n <= HELD_KARP_MAX) return heldKarp(IntStream.range(0, n).toArray()).distance;
+        Node root = rootNode();
+        evaluate(root, ROOT_ITERATIONS, 2.0, upperBound);
+        return root.bound;
+    }
+
+    // A subproblem: fixed edge states, node penalties and its evaluated 1-tree
+    private final class Node {
+        final byte[] state;      // state[i * n + j], symmetric
+        final int[] required;    // required edges per district
+        int requiredInner;       // required edges not touching the start
+        final double[] pi;
+        double bound;
+        final int[] parent = new int[n]; // spanning tree over the districts but the start
+        int s1, s2;              // the start's two edges
+        final int[] degree = new int[n];
+
+        Node(byte[] state, int[] required, int requiredInner, double[] pi) {
+            this.state = state;
+            this.required = required;
+            this.requiredInner = requiredInner;
+            this.pi = pi;
+        }
+
+        Node copy() {
+            return new Node(state.clone(), required.clone(), requiredInner, pi.clone());
+        }
+
+        boolean isTour() {
+            for (int d = 0; d < n; d++) {
+                if (degree[d] != 2) return false;
+            }
+            return true;
+        }
+
+        // Mark u-v required, propagating to districts that reach two required edges
+        boolean include(int u, int v) {
+            byte s = state[u * n + v];
+            if (s == REQUIRED) return true;
+            if (s == FORBIDDEN) return false;
+            state[u * n + v] = state[v * n + u] = REQUIRED;
+            if (++required[u] > 2 || ++required[v] > 2) return false;
+            if (u != start && v != start) requiredInner++;
+            return saturate(u) && saturate(v);
+        }
+
+        boolean exclude(int u, int v) {
+            byte s = state[u * n + v];
+            if (s == FORBIDDEN) return true;
+            if (s == REQUIRED) return false;
+            state[u * n + v] = state[v * n + u] = FORBIDDEN;
+            return available(u) >= 2 && available(v) >= 2;
+        }
+
+        private boolean saturate(int u) {
+            if (required[u] < 2) return true;
+            for (int w = 0; w < n; w++) {
+                if (w != u && state[u * n + w] == FREE) {
+                    state[u * n + w] = state[w * n + u] = FORBIDDEN;
+                    if (available(w) < 2) return false;
+                }
+            }
+            return true;
+        }
+
+        private int available(int u) {
+            int count = 0;
+            for (int w = 0; w < n; w++) {
+                if (w != u && state[u * n + w] != FORBIDDEN) count++;
+            }
+            return count;
+        }
+    }
+
+    private Node rootNode() {
+        return new Node(new byte[n * n], new int[n], 0, new double[n]);
+    }
+
+    /**
+     * Minimum 1-tree of node under its penalties; fills parent, s1, s2 and
+     * degree and returns the bound, or infinity if the fixed edges rule out
+     * every tour.
+     */
+    private double oneTree(Node node) {
+        double[] pi = node.pi;
+        byte[] state = node.state;
+        int[] parent = node.parent, degree = node.degree;
+        double[] key = new double[n];
+        boolean[] done = new boolean[n];
+        Arrays.fill(key, Double.POSITIVE_INFINITY);
+        Arrays.fill(degree, 0);
+        int first = start == 0 ? 1 : 0;
+        key[first] = 0.0;
+        parent[first] = -1;
+        parent[start] = -1;
+        done[start] = true;
+
+        double cost = 0.0;
+        int requiredInTree = 0;
+        for (int step = 0; step < n - 1; step++) {
+            int u = -1;
+            for (int c = 0; c < n; c++) {
+                if (!done[c] && (u < 0 || key[c] < key[u])) u = c;
+            }
+            if (key[u] == Double.POSITIVE_INFINITY) return Double.POSITIVE_INFINITY;
+            done[u] = true;
+            if (parent[u] >= 0) {
+                int p = parent[u];
+                cost += edge(u, p) + pi[u] + pi[p];
+                if (state[u * n + p] == REQUIRED) requiredInTree++;
+                degree[u]++;
+                degree[p]++;
+            }
+            for (int c = 0; c < n; c++) {
+                if (done[c]) continue;
+                byte s = state[u * n + c];
+                if (s == FORBIDDEN) continue;
+                double k = edge(u, c) + pi[u] + pi[c] - (s == REQUIRED ? BIG : 0.0);
+                if (k < key[c]) {
+                    key[c] = k;
+                    parent[c] = u;
+                }
+            }
+        }
+        if (requiredInTree < node.requiredInner) return Double.POSITIVE_INFINITY; // required edges close a subtour
+
+        // The start's two edges: required ones first, then the cheapest others
+        int a = -1, b = -1;
+        double ka = Double.POSITIVE_INFINITY, kb = Double.POSITIVE_INFINITY;
+        for (int c = 0; c < n; c++) {
+            if (c == start) continue;
+            byte s = state[start * n + c];
+            if (s == FORBIDDEN) continue;
+            double k = edge(start, c) + pi[start] + pi[c] - (s == REQUIRED ? BIG : 0.0);
+            if (k < ka) {
+                b = a;
+                kb = ka;
+                a = c;
+                ka = k;
+            } else if (k < kb) {
+                b = c;
+                kb = k;
+            }
+        }
+        if (b < 0) return Double.POSITIVE_INFINITY;
+        node.s1 = a;
+        node.s2 = b;
+        degree[start] += 2;
+        degree[a]++;
+        degree[b]++;
+        cost += edge(start, a) + edge(start, b) + 2 * pi[start] + pi[a] + pi[b];
+
+        double penalties = 0.0;
+        for (double p : pi) penalties += p;
+        return cost - 2 * penalties;
+    }
+
+    // Undirected cost of edge a-b: its cheaper direction
+    private double edge(int a, int b) {
+        return Math.min(tsp.distance(a, b), tsp.distance(b, a));
+    }
+
+    /**
+     * Subgradient optimization of node's penalties. Leaves the best bound in
+     * node.bound and the 1-tree for the best penalties in node.
+     */
+    private void evaluate(Node node, int iterations, double step, double upperBound) {
+        evaluate(node, iterations, step, upperBound, () -> false);
+    }
+
+    // As above, ending early (with a weaker but valid bound) once stop returns true
+    private void evaluate(Node node, int iterations, double step, double upperBound, BooleanSupplier stop) {
+        double[] pi = node.pi;
+        double[] bestPi = pi.clone();
+        double best = Double.NEGATIVE_INFINITY;
+        int sinceImproved = 0;
+        for (int it = 0; it < iterations && (it == 0 || !stop.getAsBoolean()); it++) {
+            double bound = oneTree(node);
+            if (bound == Double.POSITIVE_INFINITY) {
+                node.bound = bound;
+                return;
+            }
+            if (bound > best + 1e-9) {
+                best = bound;
+                System.arraycopy(pi, 0, bestPi, 0, n);
+                sinceImproved = 0;
+            } else if (++sinceImproved >= Math.max(10, iterations / 20)) {
+                step /= 2;
+                sinceImproved = 0;
+            }
+            double norm = 0.0;
+            for (int d = 0; d < n; d++) norm += (node.degree[d] - 2) * (node.degree[d] - 2);
+            if (norm == 0 || best >= upperBound || step < 1e-6) break;
+            double t = step * Math.max(upperBound - bound, 1e-3 * Math.abs(bound)) / norm;
+            for (int d = 0; d < n; d++) pi[d] += t * (node.degree[d] - 2);
+        }
+        System.arraycopy(bestPi, 0, pi, 0, n);
+        node.bound = Math.max(best, oneTree(node));
+    }
+
+    // ---------------------------------------------------------------- branch and bound
+
+    Outcome solve(int nodes, long seed) {
+        return solve(TSPBangladeshImproved.Budget.ofIterations(nodes), null, seed);
+    }
+
+    /**
+     * Branch-and-bound until the budget (counted in nodes) is exhausted,
+     * starting from a heuristic tour as the upper bound. The budget's time
+     * limit covers the whole run, upper bound included. Small instances are
+     * solved by Held-Karp directly.
+     */
+    Outcome solve(TSPBangladeshImproved.Budget budget, TSPBangladeshImproved.BestTracker tracker, long seed) {
+        long startNanos = System.nanoTime();
+        if (n <= HELD_KARP_MAX) {
+            TSPBangladeshImproved.Result result = heldKarp(IntStream.range(0, n).toArray());
+            tsp.stats().recordBest(result.distance);
+            if (tracker != null) tracker.offer(result.tour, result.distance, 0);
+            return new Outcome(result, result.distance, true, 0);
+        }
+        TSPBangladeshImproved.Result initial = upperBound(budget, startNanos, seed);
+        if (tracker != null) tracker.offer(initial.tour, initial.distance, 0);
+        return new Search(budget, startNanos, tracker, initial).run();
+    }
+
+    /**
+     * Starting incumbent: the better of restarts of the local search and,
+     * where it can price moves (symmetric distances), Or-opt LK, whose kicks
+     * alone can stay in a local optimum. The budget's time limit, counted
+     * from startNanos, and its stop signal apply; its iteration limit is
+     * replaced by the restart count and UPPER_BOUND_KICKS.
+     */
+    private TSPBangladeshImproved.Result upperBound(TSPBangladeshImproved.Budget budget, long startNanos, long seed) {
+        TSPBangladeshImproved.Budget restarts = budget.withIterations(Math.max(20, UPPER_BOUND_RESTART_DISTRICTS / n));
+        SplittableRandom random = new SplittableRandom(seed);
+        TSPBangladeshImproved.Tour best = null;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (long r = 0; r == 0 || !restarts.isExhausted(r, startNanos, bestDistance); r++) {
+            TSPBangladeshImproved.Tour tour = tsp.restartFrom(random.nextInt(n), start);
+            double distance = tsp.calculateTourDistance(tour);
+            if (distance < bestDistance) {
+                best = tour;
+                bestDistance = distance;
+            }
+        }
+        TSPBangladeshImproved.Result restarted = new TSPBangladeshImproved.Result(best, bestDistance);
+        TSPBangladeshImproved.Budget kicks = budget.remainingSince(startNanos).withIterations(UPPER_BOUND_KICKS);
+        if (tsp.isAsymmetric() || kicks.isExhausted(0, System.nanoTime(), bestDistance)) return restarted;
+        TSPBangladeshImproved.Result kicked = new OrLinKernighan(tsp).solve(kicks, null, random.nextLong());
+        return kicked.distance < restarted.distance ? kicked : restarted;
+    }
+
+    private final class Search {
+        final TSPBangladeshImproved.Budget budget;
+        final TSPBangladeshImproved.BestTracker tracker;
+        final long startNanos;
+        final AtomicLong nodes = new AtomicLong();
+        volatile double upper;
+        TSPBangladeshImproved.Result incumbent;
+        double openBound = Double.POSITIVE_INFINITY; // smallest bound of a subproblem left unexplored
+
+        Search(TSPBangladeshImproved.Budget budget, long startNanos, TSPBangladeshImproved.BestTracker tracker,
+               TSPBangladeshImproved.Result initial) {
+            this.budget = budget;
+            this.startNanos = startNanos;
+            this.tracker = tracker;
+            this.incumbent = initial;
+            this.upper = initial.distance;
+        }
+
+        Outcome run() {
+            Node root = rootNode();
+            evaluate(root, ROOT_ITERATIONS, 2.0, upper, () -> budget.isExhausted(0, startNanos, upper));
+            double rootBound = root.bound;
+            ForkJoinPool pool = new ForkJoinPool(tsp.workers());
+            try {
+                pool.invoke(new Task(root));
+            } finally {
+                pool.shutdownNow();
+            }
+            synchronized (this) {
+                double lower = Math.max(rootBound, Math.min(openBound, upper));
+                boolean optimal = openBound == Double.POSITIVE_INFINITY;
+                return new Outcome(incumbent, optimal ? upper : Math.min(lower, upper), optimal, nodes.get());
+            }
+        }
+
+        synchronized void offer(TSPBangladeshImproved.Tour tour, double distance) {
+            if (distance >= upper) return;
+            upper = distance;
+            incumbent = new TSPBangladeshImproved.Result(new TSPBangladeshImproved.Tour(tour), distance);
+            tsp.stats().recordBest(distance);
+            if (tracker != null) tracker.offer(tour, distance, nodes.get());
+        }
+
+        synchronized void leaveOpen(double bound) {
+            openBound = Math.min(openBound, bound);
+        }
+
+        boolean prune(double bound) {
+            return bound >= upper - 1e-7 * Math.abs(upper);
+        }
+
+        final class Task extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+
+            final Node node;
+
+            Task(Node node) {
+                this.node = node;
+            }
+
+            @Override
+            protected void compute() {
+                if (prune(node.bound)) return;
+                if (budget.isExhausted(nodes.get(), startNanos, upper)) {
+                    leaveOpen(node.bound);
+                    return;
+                }
+                nodes.incrementAndGet();
+                tsp.stats().iterations.increment();
+
+                List<Node> children = new ArrayList<>();
+                if (node.isTour()) {
+                    int[] cycle = cycle(node);
+                    TSPBangladeshImproved.Tour tour = orientFeasibly(cycle);
+                    if (tour != null) {
+                        double distance = tsp.calculateTourDistance(tour);
+                        offer(tour, distance);
+                        if (distance - node.bound <= 1e-7 * Math.abs(distance)) return;
+                    }
+                    // Split on the tour's edges: exclude edge i, keeping edges 0 .. i-1
+                    for (int i = 0; i < n; i++) {
+                        Node child = node.copy();
+                        boolean ok = true;
+                        for (int k = 0; k < i && ok; k++) ok = child.include(cycle[k], cycle[(k + 1) % n]);
+                        if (ok && child.exclude(cycle[i], cycle[(i + 1) % n])) children.add(child);
+                    }
+                } else {
+                    branchOnDegree(children);
+                }
+
+                List<Task> tasks = new ArrayList<>();
+                for (Node child : children) {
+                    evaluate(child, NODE_ITERATIONS, 0.5, upper);
+                    if (!prune(child.bound)) tasks.add(new Task(child));
+                }
+                tasks.sort(Comparator.comparingDouble(t -> t.node.bound));
+                invokeAll(tasks);
+            }
+
+            private void branchOnDegree(List<Node> children) {
+                int v = -1;
+                for (int d = 0; d < n; d++) {
+                    if (node.degree[d] > 2 && (v < 0 || node.degree[d] > node.degree[v])) v = d;
+                }
+                int a = -1, b = -1;
+                for (int w : treeNeighbors(node, v)) {
+                    if (node.state[v * n + w] != FREE) continue;
+                    if (a < 0) a = w;
+                    else if (b < 0) b = w;
+                }
+                if (a < 0) return; // cannot happen: a saturated district has degree two
+                Node both = node.copy();
+                if (b >= 0 && both.include(v, a) && both.include(v, b)) children.add(both);
+                Node one = node.copy();
+                if (one.include(v, a) && (b < 0 || one.exclude(v, b))) children.add(one);
+                Node none = node.copy();
+                if (none.exclude(v, a)) children.add(none);
+            }
+        }
+    }
+
+    private int[] treeNeighbors(Node node, int v) {
+        int[] out = new int[node.degree[v]];
+        int k = 0;
+        if (v == start) {
+            out[k++] = node.s1;
+            out[k++] = node.s2;
+            return out;
+        }
+        if (node.parent[v] >= 0) out[k++] = node.parent[v];
+        if (v == node.s1 || v == node.s2) out[k++] = start;
+        for (int w = 0; w < n && k < out.length; w++) {
+            if (w != start && node.parent[w] == v) out[k++] = w;
+        }
+        return out;
+    }
+
+    // Districts of a 1-tree that is a tour, in cycle order from the start
+    private int[] cycle(Node node) {
+        int[] cycle = new int[n];
+        int previous = start, at = node.s1;
+        cycle[0] = start;
+        for (int i = 1; i < n; i++) {
+            cycle[i] = at;
+            int next = -1;
+            for (int w : treeNeighbors(node, at)) {
+                if (w != previous) next = w;
+            }
+            previous = at;
+            at = next;
+        }
+        return cycle;
+    }
+
+    // The cycle as a tour in the shorter direction that honours every sequence, or null
+    private TSPBangladeshImproved.Tour orientFeasibly(int[] cycle) {
+        TSPBangladeshImproved.Tour best = null;
+        for (int direction = 0; direction < 2; direction++) {
+            int[] city = cycle.clone();
+            if (direction == 1) {
+                for (int i = 1, j = n - 1; i < j; i++, j--) {
+                    int t = city[i];
+                    city[i] = city[j];
+                    city[j] = t;
+                }
+            }
+            TSPBangladeshImproved.Tour tour = new TSPBangladeshImproved.Tour(city, n);
+            if (honoursSequences(tour)
+                    && (best == null || tsp.calculateTourDistance(tour) < tsp.calculateTourDistance(best))) {
+                best = tour;
+            }
+        }
+        return best;
+    }
+
+    private boolean honoursSequences(TSPBangladeshImproved.Tour tour) {
+        for (int[] sequence : tsp.sequenceIds()) {
+            for (int k = 0; k + 1 < sequence.length; k++) {
+                if (tour.pos[sequence[k]] > tour.pos[sequence[k + 1]]) return false;
+            }
+        }
+        return true;
+    }
+}
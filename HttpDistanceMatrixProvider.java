@@ -0,0 +1,174 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Distance Matrix API client (Google Maps compatible request and response
+ * shape). Origins and destinations are sent as given, pipe separated; an
+ * element whose status is not OK comes back as NaN. Pair it with
+ * batched(25, 25, ...) to stay within the API's per-request limits.
+ */
+class HttpDistanceMatrixProvider implements DistanceProvider {
+
+    private final HttpClient client;
+    private final URI endpoint;
+    private final String apiKey;
+
+    /**
+     * endpoint is the full JSON URL, e.g.
+     * https://maps.googleapis.com/maps/api/distancematrix/json; apiKey may be null
+     */
+    HttpDistanceMatrixProvider(URI endpoint, String apiKey) {
+        this.client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        this.endpoint = endpoint;
+        this.apiKey = apiKey;
+    }
+
+    @Override
+    public CompletableFuture<double[]> distances(List<String> origins, List<String> destinations) {
+        StringBuilder url = new StringBuilder(endpoint.toString())
+                .append("?units=metric&origins=").append(encode(String.join("|", origins)))
+                .append("&destinations=").append(encode(String.join("|", destinations)));
+        if (apiKey != null) url.append("&key=").append(encode(apiKey));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url.toString()))
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> {
+                    if (response.statusCode() != 200) {
+                        throw new CompletionException(new IOException(
+                                "Distance matrix request failed: HTTP " + response.statusCode()));
+                    }
+                    return parse(response.body(), origins.size(), destinations.size());
+                });
+    }
+
+    @SuppressWarnings("unchecked")
+    static double[] parse(String body, int rows, int cols) {
+        Map<String, Object> root = (Map<String, Object>) new Json(body).value();
+        if (!"OK".equals(root.get("status"))) {
+            throw new CompletionException(new IOException("Distance matrix status " + root.get("status")));
+        }
+        List<Object> rowList = (List<Object>) root.get("rows");
+        double[] result = new double[rows * cols];
+        Arrays.fill(result, Double.NaN);
+        for (int i = 0; i < rows && i < rowList.size(); i++) {
+            List<Object> elements = (List<Object>) ((Map<String, Object>) rowList.get(i)).get("elements");
+            for (int j = 0; j < cols && j < elements.size(); j++) {
+                Map<String, Object> element = (Map<String, Object>) elements.get(j);
+                if (!"OK".equals(element.get("status"))) continue;
+                Map<String, Object> distance = (Map<String, Object>) element.get("distance");
+                result[i * cols + j] = ((Number) distance.get("value")).doubleValue() / 1000.0; // metres
+            }
+        }
+        return result;
+    }
+
+    private static String encode(String s) {
+        return URLEncoder.encode(s, StandardCharsets.UTF_8);
+    }
+
+    // Minimal JSON reader: objects, arrays, strings, numbers, booleans and null
+    private static class Json {
+        private final String s;
+        private int i;
+
+        Json(String s) {
+            this.s = s;
+        }
+
+        Object value() {
+            skip();
+            if (i >= s.length()) throw error("unexpected end");
+            char c = s.charAt(i);
+            if (c == '{') return object();
+            if (c == '[') return array();
+            if (c == '"') return string();
+            if (s.startsWith("true", i)) { i += 4; return Boolean.TRUE; }
+            if (s.startsWith("false", i)) { i += 5; return Boolean.FALSE; }
+            if (s.startsWith("null", i)) { i += 4; return null; }
+            return number();
+        }
+
+        private Map<String, Object> object() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            i++;
+            skip();
+            if (s.charAt(i) == '}') { i++; return map; }
+            while (true) {
+                skip();
+                String key = string();
+                skip();
+                expect(':');
+                map.put(key, value());
+                skip();
+                if (s.charAt(i) == ',') { i++; continue; }
+                expect('}');
+                return map;
+            }
+        }
+
+        private List<Object> array() {
+            List<Object> list = new ArrayList<>();
+            i++;
+            skip();
+            if (s.charAt(i) == ']') { i++; return list; }
+            while (true) {
+                list.add(value());
+                skip();
+                if (s.charAt(i) == ',') { i++; continue; }
+                expect(']');
+                return list;
+            }
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                char c = s.charAt(i++);
+                if (c == '"') return sb.toString();
+                if (c != '\\') { sb.append(c); continue; }
+                char e = s.charAt(i++);
+                switch (e) {
+                    case 'n': sb.append('\n'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'u': sb.append((char) Integer.parseInt(s.substring(i, i + 4), 16)); i += 4; break;
+                    default: sb.append(e);
+                }
+            }
+        }
+
+        private Number number() {
+            int start = i;
+            while (i < s.length() && "+-0123456789.eE".indexOf(s.charAt(i)) >= 0) i++;
+            if (start == i) throw error("unexpected character");
+            return Double.parseDouble(s.substring(start, i));
+        }
+
+        private void skip() {
+            while (i < s.length() && Character.isWhitespace(s.charAt(i))) i++;
+        }
+
+        private void expect(char c) {
+            if (i >= s.length() || s.charAt(i) != c) throw error("expected '" + c + "'");
+            i++;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Invalid JSON at " + i + ": " + message);
+        }
+    }
+}
@@ -0,0 +1,353 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Memetic search: a population of locally optimal tours recombined with
+ * edge assembly crossover (EAX).
+ *
+ * Each generation pairs every individual A with a random partner B. A child
+ * takes A, applies one AB-cycle (a cycle alternating between edges only in A
+ * and edges only in B), and reconnects the resulting subtours with the
+ * cheapest 2-opt style joins over the candidate lists. The child then gets
+ * the mandatory sequence order re-imposed and 2-opt + Or-opt local search,
+ * and is scored with calculateTourDistance. A child replaces A only if it is
+ * shorter and not a duplicate, so the best tour always survives.
+ *
+ * Children of a generation are built and optimized in parallel. Every child
+ * draws from its own SplittableRandom split in order from the seed, so
+ * results are reproducible for a given seed.
+ */
+class MemeticSolver {
+
+    static final int DEFAULT_POPULATION = 30;
+    private static final double EPS = 0.001;
+
+    private final TSPBangladeshImproved tsp;
+    private final int n;
+    private final int populationSize;
+    private final int workers;
+
+    MemeticSolver(TSPBangladeshImproved tsp, int populationSize, int workers) {
+        if (populationSize < 2) throw new IllegalArgumentException("populationSize must be >= 2");
+        if (workers < 1) throw new IllegalArgumentException("workers must be >= 1");
+        this.tsp = tsp;
+        this.n = tsp.n;
+        this.populationSize = populationSize;
+        this.workers = workers;
+    }
+
+    TSPBangladeshImproved.Result solve(int generations, long seed) {
+        return solve(TSPBangladeshImproved.Budget.ofIterations(generations), null, seed);
+    }
+
+    /**
+     * Evolve the population until the budget (counted in generations) is
+     * exhausted or the population has converged, returning the best tour.
+     */
+    TSPBangladeshImproved.Result solve(TSPBangladeshImproved.Budget budget,
+                                       TSPBangladeshImproved.BestTracker tracker, long seed) {
+        long startNanos = System.nanoTime();
+        SolverStats stats = tsp.stats();
+        SplittableRandom root = new SplittableRandom(seed);
+        int start = tsp.idOf(tsp.startDistrict);
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            // Initial population: independent restarts
+            TSPBangladeshImproved.Tour[] population = new TSPBangladeshImproved.Tour[populationSize];
+            double[] fitness = new double[populationSize];
+            int[] startPoints = new int[populationSize];
+            for (int i = 0; i < populationSize; i++) startPoints[i] = root.nextInt(n);
+            runAll(pool, populationSize, i -> {
+                population[i] = tsp.restartFrom(startPoints[i], start);
+                fitness[i] = tsp.calculateTourDistance(population[i]);
+            });
+            int best = 0;
+            for (int i = 0; i < populationSize; i++) {
+                stats.recordBest(fitness[i]);
+                if (fitness[i] < fitness[best]) best = i;
+            }
+            if (tracker != null) tracker.offer(population[best], fitness[best], 0);
+
+            TSPBangladeshImproved.Tour[] children = new TSPBangladeshImproved.Tour[populationSize];
+            double[] childFitness = new double[populationSize];
+            for (long g = 0; n >= 8 && !budget.isExhausted(g, startNanos, fitness[best]); g++) {
+                int[] partner = new int[populationSize];
+                for (int i = 0; i < populationSize; i++) partner[i] = i;
+                shuffle(partner, root);
+                SplittableRandom[] streams = new SplittableRandom[populationSize];
+                for (int i = 0; i < populationSize; i++) streams[i] = root.split();
+
+                runAll(pool, populationSize, i -> {
+                    int j = partner[i] != i ? partner[i] : partner[(i + 1) % populationSize];
+                    TSPBangladeshImproved.Tour child = crossover(population[i], population[j], start, streams[i]);
+                    children[i] = child;
+                    childFitness[i] = child == null ? Double.POSITIVE_INFINITY : tsp.calculateTourDistance(child);
+                });
+
+                stats.iterations.increment();
+                boolean replaced = false;
+                for (int i = 0; i < populationSize; i++) {
+                    if (childFitness[i] >= fitness[i] - EPS || isDuplicate(childFitness[i], fitness)) continue;
+                    population[i] = children[i];
+                    fitness[i] = childFitness[i];
+                    replaced = true;
+                    stats.recordBest(fitness[i]);
+                    if (fitness[i] < fitness[best]) {
+                        best = i;
+                        if (tracker != null) tracker.offer(population[best], fitness[best], g + 1);
+                    }
+                }
+                if (!replaced && hasConverged(fitness)) break;
+            }
+            return new TSPBangladeshImproved.Result(new TSPBangladeshImproved.Tour(population[best]), fitness[best]);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private interface Task {
+        void run(int index);
+    }
+
+    // Run task(0 .. count - 1) on the pool and wait for all of them
+    private void runAll(ExecutorService pool, int count, Task task) {
+        List<Future<?>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final int index = i;
+            futures.add(pool.submit(() -> task.run(index)));
+        }
+        try {
+            for (Future<?> f : futures) f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Search interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search worker failed", e.getCause());
+        }
+    }
+
+    private static boolean isDuplicate(double distance, double[] fitness) {
+        for (double f : fitness) {
+            if (Math.abs(f - distance) < EPS) return true;
+        }
+        return false;
+    }
+
+    // Every individual has the same length: no AB-cycles are left to exchange
+    private static boolean hasConverged(double[] fitness) {
+        for (double f : fitness) {
+            if (Math.abs(f - fitness[0]) >= EPS) return false;
+        }
+        return true;
+    }
+
+    private static void shuffle(int[] a, SplittableRandom random) {
+        for (int i = a.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+        }
+    }
+
+    /**
+     * EAX child of A and B, optimized and rotated to start; null if the
+     * parents share every edge.
+     */
+    TSPBangladeshImproved.Tour crossover(TSPBangladeshImproved.Tour a, TSPBangladeshImproved.Tour b,
+                                         int start, SplittableRandom random) {
+        int[] linkA = links(a), linkB = links(b);
+        int[] cycle = randomAbCycle(linkA, linkB, random);
+        if (cycle == null) return null;
+
+        // Apply the AB-cycle to A: drop its A edges, add its B edges
+        int[] link = linkA.clone();
+        int len = cycle.length;
+        for (int k = 0; k < len; k += 2) {
+            replace(link, cycle[k], cycle[k + 1], -1);
+            replace(link, cycle[k + 1], cycle[k], -1);
+        }
+        for (int k = 1; k < len; k += 2) {
+            int u = cycle[k], v = cycle[(k + 1) % len];
+            replace(link, u, -1, v);
+            replace(link, v, -1, u);
+        }
+        mergeSubtours(link);
+
+        int[] city = new int[n];
+        int previous = -1, at = start;
+        for (int i = 0; i < n; i++) {
+            city[i] = at;
+            int next = link[2 * at] != previous ? link[2 * at] : link[2 * at + 1];
+            previous = at;
+            at = next;
+        }
+        TSPBangladeshImproved.Tour child = new TSPBangladeshImproved.Tour(city, n);
+        // Read the child in the direction that already has more sequence
+        // districts in order, so that enforcing the order moves few of them
+        int ascending = 0, descending = 0;
+        for (int[] sequence : tsp.sequenceIds()) {
+            for (int k = 0; k + 1 < sequence.length; k++) {
+                if (child.pos[sequence[k]] < child.pos[sequence[k + 1]]) ascending++;
+                else descending++;
+            }
+        }
+        if (descending > ascending) child.reverse(1, n - 1);
+        tsp.enforceMandatorySequences(child);
+        return tsp.localSearch(child);
+    }
+
+    // Two neighbors per district of a full tour
+    private int[] links(TSPBangladeshImproved.Tour tour) {
+        int[] link = new int[2 * n];
+        for (int d : tour.city) {
+            link[2 * d] = tour.prev(d);
+            link[2 * d + 1] = tour.next(d);
+        }
+        return link;
+    }
+
+    private static boolean hasLink(int[] link, int u, int v) {
+        return link[2 * u] == v || link[2 * u + 1] == v;
+    }
+
+    private static void replace(int[] link, int u, int from, int to) {
+        if (link[2 * u] == from) link[2 * u] = to;
+        else link[2 * u + 1] = to;
+    }
+
+    /**
+     * Decompose the edges only in A or only in B into AB-cycles by an
+     * alternating walk, cutting out a cycle whenever the walk returns to a
+     * district at the same parity, and return one of them at random as
+     * districts c0 c1 ... with (c0, c1) an A edge, (c1, c2) a B edge, and so on.
+     */
+    private int[] randomAbCycle(int[] linkA, int[] linkB, SplittableRandom random) {
+        // Remaining A-only and B-only edges per district, -1 when used or absent
+        int[] restA = new int[2 * n], restB = new int[2 * n];
+        for (int d = 0; d < n; d++) {
+            for (int s = 0; s < 2; s++) {
+                restA[2 * d + s] = hasLink(linkB, d, linkA[2 * d + s]) ? -1 : linkA[2 * d + s];
+                restB[2 * d + s] = hasLink(linkA, d, linkB[2 * d + s]) ? -1 : linkB[2 * d + s];
+            }
+        }
+        int[] path = new int[2 * n + 1];
+        int[][] at = new int[2][n]; // at[parity][d] = index of d on the path at that parity, -1 if none
+        Arrays.fill(at[0], -1);
+        Arrays.fill(at[1], -1);
+        List<int[]> cycles = new ArrayList<>();
+
+        for (int s = 0; s < n; s++) {
+            while (restA[2 * s] >= 0 || restA[2 * s + 1] >= 0) {
+                int length = 0;
+                path[length++] = s;
+                at[0][s] = 0;
+                while (length > 1 || restA[2 * s] >= 0 || restA[2 * s + 1] >= 0) {
+                    int u = path[length - 1];
+                    int[] rest = (length - 1) % 2 == 0 ? restA : restB;
+                    int slot = rest[2 * u] >= 0 && rest[2 * u + 1] >= 0
+                            ? 2 * u + random.nextInt(2)
+                            : (rest[2 * u] >= 0 ? 2 * u : 2 * u + 1);
+                    int v = rest[slot];
+                    rest[slot] = -1;
+                    replace(rest, v, u, -1);
+
+                    int parity = length % 2;
+                    int j = at[parity][v];
+                    if (j < 0) {
+                        at[parity][v] = length;
+                        path[length++] = v;
+                        continue;
+                    }
+                    // Closed an alternating cycle path[j .. length - 1] back to v
+                    int[] cycle = Arrays.copyOfRange(path, j, length);
+                    if (j % 2 == 1) {
+                        // Starts with a B edge; rotate so that it starts with an A edge
+                        int[] rotated = new int[cycle.length];
+                        for (int k = 0; k < cycle.length; k++) rotated[k] = cycle[(k + 1) % cycle.length];
+                        cycle = rotated;
+                    }
+                    cycles.add(cycle);
+                    for (int k = j + 1; k < length; k++) at[k % 2][path[k]] = -1;
+                    length = j + 1;
+                }
+                at[0][s] = -1;
+            }
+        }
+        return cycles.isEmpty() ? null : cycles.get(random.nextInt(cycles.size()));
+    }
+
+    /**
+     * Join subtours, smallest first, into its cheapest neighbor: remove
+     * (u, u') from it and (v, v') from another subtour and add (u, v) and
+     * (u', v'), with v taken from u's candidate list (or from every district
+     * if none of u's candidates lies outside the subtour).
+     */
+    private void mergeSubtours(int[] link) {
+        int[] label = new int[n];
+        Arrays.fill(label, -1);
+        int[] size = new int[n];
+        int subtours = 0;
+        for (int d = 0; d < n; d++) {
+            if (label[d] >= 0) continue;
+            int previous = -1, at = d;
+            do {
+                label[at] = d;
+                size[d]++;
+                int next = link[2 * at] != previous ? link[2 * at] : link[2 * at + 1];
+                previous = at;
+                at = next;
+            } while (at != d);
+            subtours++;
+        }
+
+        while (subtours > 1) {
+            int smallest = -1;
+            for (int d = 0; d < n; d++) {
+                if (label[d] == d && (smallest < 0 || size[d] < size[smallest])) smallest = d;
+            }
+            int bestU = -1, bestU2 = -1, bestV = -1, bestV2 = -1;
+            double bestCost = Double.POSITIVE_INFINITY;
+            for (int pass = 0; pass < 2 && bestU < 0; pass++) {
+                int previous = -1, u = smallest;
+                do {
+                    int[] candidates = pass == 0 ? tsp.neighbors[u] : null;
+                    int count = pass == 0 ? candidates.length : n;
+                    for (int c = 0; c < count; c++) {
+                        int v = pass == 0 ? candidates[c] : c;
+                        if (label[v] == smallest) continue;
+                        for (int s = 0; s < 2; s++) {
+                            int u2 = link[2 * u + s];
+                            for (int t = 0; t < 2; t++) {
+                                int v2 = link[2 * v + t];
+                                double cost = tsp.distance(u, v) + tsp.distance(u2, v2)
+                                        - tsp.distance(u, u2) - tsp.distance(v, v2);
+                                if (cost < bestCost) {
+                                    bestCost = cost;
+                                    bestU = u;
+                                    bestU2 = u2;
+                                    bestV = v;
+                                    bestV2 = v2;
+                                }
+                            }
+                        }
+                    }
+                    int next = link[2 * u] != previous ? link[2 * u] : link[2 * u + 1];
+                    previous = u;
+                    u = next;
+                } while (u != smallest);
+            }
+
+            replace(link, bestU, bestU2, bestV);
+            replace(link, bestU2, bestU, bestV2);
+            replace(link, bestV, bestV2, bestU);
+            replace(link, bestV2, bestV, bestU2);
+            int into = label[bestV];
+            for (int d = 0; d < n; d++) {
+                if (label[d] == smallest) label[d] = into;
+            }
+            size[into] += size[smallest];
+            subtours--;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+import java.util.*;
+
+/**
+ * Nearest-neighbor tour construction without per-step allocation.
+ *
+ * The next district is the first unvisited one on the current district's
+ * candidate list, which is the exact nearest by matrix distance. Only when
+ * the whole list is visited does the search fall back to a uniform grid over
+ * the district coordinates, scanning rings of cells outward until no
+ * unscanned cell can hold a closer district. Roads may be shorter than the
+ * projected straight line (ferries, overlaid distances, loaded networks), so
+ * that test uses the smallest road / straight-line ratio of the matrix, see
+ * roadRatio. Visited districts are removed
+ * from their cells and tracked in a bitset. Mandatory sequences are followed
+ * through a precomputed membership table and per-sequence visited prefixes.
+ *
+ * The Index is immutable and shared; a builder holds the per-thread scratch.
+ */
+class NearestNeighborBuilder {
+
+    static final class Index {
+        final int n;
+        // Grid over coordinates projected to km
+        final int cols, rows;
+        final double minX, minY, cellSize;
+        final double[] x, y;
+        final int[] cellOf;     // cell of each district, -1 if it has no coordinates
+        final int[] cellStart;  // districts of cell c are cellItems[cellStart[c] .. cellStart[c + 1] - 1]
+        final int[] cellItems;
+        final int[] unplaced;   // districts without coordinates, always scanned
+        // Sequence membership of each district, in sequence order
+        final int[] memberStart, memberSeq, memberRank;
+        final int[][] sequences;
+
+        Index(List<String> districts, Map<String, TSPBangladeshImproved.DistrictCoords> coordinates, int[][] sequences) {
+            n = districts.size();
+            x = new double[n];
+            y = new double[n];
+            cellOf = new int[n];
+            double meanLat = 0.0;
+            int placed = 0;
+            for (String d : districts) {
+                TSPBangladeshImproved.DistrictCoords c = coordinates.get(d);
+                if (c != null) {
+                    meanLat += c.lat;
+                    placed++;
+                }
+            }
+            double kx = 111.2 * Math.cos(Math.toRadians(placed > 0 ? meanLat / placed : 0.0));
+            double x0 = Double.POSITIVE_INFINITY, y0 = Double.POSITIVE_INFINITY, x1 = -x0, y1 = -y0;
+            int[] noCoords = new int[n];
+            int missing = 0;
+            for (int i = 0; i < n; i++) {
+                TSPBangladeshImproved.DistrictCoords c = coordinates.get(districts.get(i));
+                if (c == null) {
+                    noCoords[missing++] = i;
+                    cellOf[i] = -1;
+                    continue;
+                }
+                x[i] = c.lon * kx;
+                y[i] = c.lat * 111.2;
+                x0 = Math.min(x0, x[i]);
+                y0 = Math.min(y0, y[i]);
+                x1 = Math.max(x1, x[i]);
+                y1 = Math.max(y1, y[i]);
+            }
+            unplaced = Arrays.copyOf(noCoords, missing);
+
+            // About two districts per cell
+            double width = Math.max(x1 - x0, 1e-6), height = Math.max(y1 - y0, 1e-6);
+            double cell = placed > 0 ? Math.sqrt(width * height * 2.0 / placed) : 1.0;
+            cellSize = Math.max(cell, 1e-6);
+            minX = placed > 0 ? x0 : 0.0;
+            minY = placed > 0 ? y0 : 0.0;
+            cols = placed > 0 ? (int) (width / cellSize) + 1 : 1;
+            rows = placed > 0 ? (int) (height / cellSize) + 1 : 1;
+
+            cellStart = new int[cols * rows + 1];
+            for (int i = 0; i < n; i++) {
+                if (cellOf[i] < 0) continue;
+                int cx = Math.min((int) ((x[i] - minX) / cellSize), cols - 1);
+                int cy = Math.min((int) ((y[i] - minY) / cellSize), rows - 1);
+                cellOf[i] = cy * cols + cx;
+                cellStart[cellOf[i] + 1]++;
+            }
+            for (int c = 0; c < cols * rows; c++) cellStart[c + 1] += cellStart[c];
+            cellItems = new int[cellStart[cols * rows]];
+            int[] fill = Arrays.copyOf(cellStart, cols * rows);
+            for (int i = 0; i < n; i++) {
+                if (cellOf[i] >= 0) cellItems[fill[cellOf[i]]++] = i;
+            }
+
+            this.sequences = sequences;
+            memberStart = new int[n + 1];
+            for (int[] seq : sequences) {
+                for (int d : seq) memberStart[d + 1]++;
+            }
+            for (int i = 0; i < n; i++) memberStart[i + 1] += memberStart[i];
+            memberSeq = new int[memberStart[n]];
+            memberRank = new int[memberStart[n]];
+            int[] next = Arrays.copyOf(memberStart, n);
+            for (int s = 0; s < sequences.length; s++) {
+                for (int k = 0; k < sequences[s].length; k++) {
+                    int d = sequences[s][k];
+                    memberSeq[next[d]] = s;
+                    memberRank[next[d]++] = k;
+                }
+            }
+        }
+    }
+
+    private final Index index;
+    private final long[] visited;
+    private final int[] items;    // per-build copy of cellItems; live districts first in each cell
+    private final int[] itemPos;  // position of each district in items
+    private final int[] cellCount;
+    private final int[] progress; // progress[s] = length of the visited prefix of sequence s
+
+    NearestNeighborBuilder(Index index) {
+        this.index = index;
+        visited = new long[(index.n + 63) >>> 6];
+        items = new int[index.cellItems.length];
+        itemPos = new int[index.n];
+        cellCount = new int[index.cols * index.rows];
+        progress = new int[index.sequences.length];
+    }
+
+    Index index() {
+        return index;
+    }
+
+    /**
+     * Largest r such that every matrix distance between two districts with
+     * coordinates is at least r times their projected distance; 0 if some
+     * road has length 0. O(n^2), so computed once per matrix.
+     */
+    static double roadRatio(Index index, TSPBangladeshImproved tsp) {
+        double ratio = Double.POSITIVE_INFINITY;
+        for (int a = 0; a < index.n; a++) {
+            if (index.cellOf[a] < 0) continue;
+            for (int b = 0; b < index.n; b++) {
+                if (b == a || index.cellOf[b] < 0) continue;
+                double line = Math.hypot(index.x[a] - index.x[b], index.y[a] - index.y[b]);
+                if (line > 0) ratio = Math.min(ratio, tsp.distance(a, b) / line);
+            }
+        }
+        // Guard the bound against rounding in the projection
+        return ratio == Double.POSITIVE_INFINITY ? 0.0 : ratio * (1 - 1e-9);
+    }
+
+    TSPBangladeshImproved.Tour build(TSPBangladeshImproved tsp, int start) {
+        int n = index.n;
+        Arrays.fill(visited, 0L);
+        Arrays.fill(progress, 0);
+        System.arraycopy(index.cellItems, 0, items, 0, items.length);
+        for (int c = 0; c < cellCount.length; c++) {
+            cellCount[c] = index.cellStart[c + 1] - index.cellStart[c];
+            for (int k = index.cellStart[c]; k < index.cellStart[c + 1]; k++) itemPos[items[k]] = k;
+        }
+
+        int[] order = new int[n];
+        int size = 0;
+        int current = start;
+        order[size++] = start;
+        visit(start);
+
+        while (size < n) {
+            int next = followSequence(current);
+            if (next < 0) next = nearestOnCandidateList(tsp.neighbors[current]);
+            if (next < 0) next = nearestInGrid(tsp, current);
+            if (next < 0) break;
+            order[size++] = next;
+            visit(next);
+            current = next;
+        }
+        return new TSPBangladeshImproved.Tour(order, n);
+    }
+
+    // Next district of the first sequence through current whose earlier districts are all visited
+    private int followSequence(int current) {
+        for (int m = index.memberStart[current]; m < index.memberStart[current + 1]; m++) {
+            int s = index.memberSeq[m], k = index.memberRank[m];
+            int[] seq = index.sequences[s];
+            if (k < seq.length - 1 && !isVisited(seq[k + 1]) && progress[s] > k) return seq[k + 1];
+        }
+        return -1;
+    }
+
+    private int nearestOnCandidateList(int[] candidates) {
+        for (int c : candidates) {
+            if (!isVisited(c)) return c;
+        }
+        return -1;
+    }
+
+    /**
+     * Nearest unvisited district by matrix distance, scanning rings of grid
+     * cells outward. A district beyond ring r is at least r cells away in a
+     * straight line, hence at least roadRatio times that by road, so the scan
+     * stops once the best found is strictly closer (ties go to the lowest
+     * id, as in a full scan). With a ratio of 0 every ring is scanned.
+     * Districts without coordinates are always compared.
+     */
+    private int nearestInGrid(TSPBangladeshImproved tsp, int current) {
+        int best = -1;
+        double bestDist = Double.POSITIVE_INFINITY;
+        double ratio = tsp.roadRatio();
+        for (int d : index.unplaced) {
+            if (!isVisited(d) && tsp.distance(current, d) < bestDist) {
+                bestDist = tsp.distance(current, d);
+                best = d;
+            }
+        }
+        int cell = index.cellOf[current];
+        int cx = cell >= 0 ? cell % index.cols : 0, cy = cell >= 0 ? cell / index.cols : 0;
+        // Without a position of our own every cell has to be scanned
+        int firstRing = cell >= 0 ? 0 : Math.max(index.cols, index.rows);
+        for (int r = firstRing; r <= Math.max(index.cols, index.rows); r++) {
+            for (int gy = Math.max(cy - r, 0); gy <= Math.min(cy + r, index.rows - 1); gy++) {
+                boolean fullRow = gy == cy - r || gy == cy + r || cell < 0;
+                int step = fullRow || r == 0 ? 1 : 2 * r;
+                for (int gx = cx - r; gx <= cx + r; gx += step) {
+                    if (gx < 0 || gx >= index.cols) continue;
+                    int c = gy * index.cols + gx;
+                    for (int k = index.cellStart[c], end = k + cellCount[c]; k < end; k++) {
+                        int d = items[k];
+                        double dist = tsp.distance(current, d);
+                        if (dist < bestDist || (dist == bestDist && d < best)) {
+                            bestDist = dist;
+                            best = d;
+                        }
+                    }
+                }
+            }
+            if (cell >= 0 && bestDist < ratio * r * index.cellSize) break;
+        }
+        return best;
+    }
+
+    private boolean isVisited(int d) {
+        return (visited[d >>> 6] & (1L << d)) != 0;
+    }
+
+    private void visit(int d) {
+        visited[d >>> 6] |= 1L << d;
+
+        // Remove from its grid cell by swapping with the cell's last live district
+        int cell = index.cellOf[d];
+        if (cell >= 0) {
+            int last = index.cellStart[cell] + --cellCount[cell];
+            int at = itemPos[d], other = items[last];
+            items[at] = other;
+            itemPos[other] = at;
+            items[last] = d;
+            itemPos[d] = last;
+        }
+
+        // Extend the visited prefix of every sequence d belongs to
+        for (int m = index.memberStart[d]; m < index.memberStart[d + 1]; m++) {
+            int s = index.memberSeq[m];
+            int[] seq = index.sequences[s];
+            while (progress[s] < seq.length && isVisited(seq[progress[s]])) progress[s]++;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Streaming CSV loader for district networks kept outside the code.
+ *
+ * Files are read line by line straight into the solver's district list and
+ * primitive edge arrays. Formats (comma separated, fields may be quoted):
+ *   nodes      name,lat,lon
+ *   edges      from,to,km[,oneway]   (oneway: the road runs from -> to only)
+ *   sequences  one mandatory sequence per line: name,name,...
+ * Blank lines and lines starting with '#' are skipped, and a first line
+ * starting with "name" or "from" is taken as a header. Malformed lines,
+ * duplicate districts and edges naming unknown districts are rejected with
+ * the file and line number.
+ */
+class NetworkLoader {
+
+    private NetworkLoader() {}
+
+    static void readNodes(TSPBangladeshImproved tsp, Path file) throws IOException {
+        read(file, "name", (fields, count) -> {
+            expect(count, 3);
+            tsp.addDistrict(fields[0], parse(fields[1], "lat"), parse(fields[2], "lon"));
+        });
+    }
+
+    static void readEdges(TSPBangladeshImproved tsp, Path file) throws IOException {
+        read(file, "from", (fields, count) -> {
+            boolean oneWay = count == 4 && fields[3].equalsIgnoreCase("oneway");
+            if (count != 3 && !oneWay) throw new IllegalArgumentException("expected 3 fields, or 4 ending in oneway, got " + count);
+            if (oneWay) tsp.addArc(fields[0], fields[1], parse(fields[2], "km"));
+            else tsp.addEdge(tsp.idOf(fields[0]), tsp.idOf(fields[1]), parse(fields[2], "km"));
+        });
+    }
+
+    static void readSequences(TSPBangladeshImproved tsp, Path file) throws IOException {
+        read(file, null, (fields, count) -> {
+            if (count < 2) throw new IllegalArgumentException("a sequence needs at least 2 districts");
+            tsp.addMandatorySequence(Arrays.asList(fields).subList(0, count));
+        });
+    }
+
+    private interface LineHandler {
+        void accept(String[] fields, int count);
+    }
+
+    private static void read(Path file, String header, LineHandler handler) throws IOException {
+        String[] fields = new String[8];
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNo = 0;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) continue;
+                if (lineNo == 1 && header != null && trimmed.regionMatches(true, 0, header, 0, header.length())) continue;
+                try {
+                    int count = split(trimmed, fields);
+                    if (count > fields.length) {
+                        fields = new String[count];
+                        split(trimmed, fields);
+                    }
+                    handler.accept(fields, count);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException(file + ":" + lineNo + ": " + e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Split a CSV line into fields, honouring double quotes. Returns the field
+     * count; only the first fields.length fields are stored.
+     */
+    static int split(String line, String[] fields) {
+        int count = 0;
+        int i = 0, len = line.length();
+        StringBuilder quoted = null;
+        while (i <= len) {
+            String field;
+            if (i < len && line.charAt(i) == '"') {
+                if (quoted == null) quoted = new StringBuilder();
+                quoted.setLength(0);
+                i++;
+                while (true) {
+                    if (i >= len) throw new IllegalArgumentException("unterminated quote");
+                    char c = line.charAt(i++);
+                    if (c == '"') {
+                        if (i < len && line.charAt(i) == '"') {
+                            quoted.append('"');
+                            i++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        quoted.append(c);
+                    }
+                }
+                field = quoted.toString();
+                while (i < len && line.charAt(i) != ',') i++;
+            } else {
+                int end = line.indexOf(',', i);
+                if (end < 0) end = len;
+                field = line.substring(i, end).trim();
+                i = end;
+            }
+            if (count < fields.length) fields[count] = field;
+            count++;
+            i++; // skip the comma
+        }
+        return count;
+    }
+
+    private static void expect(int count, int wanted) {
+        if (count != wanted) throw new IllegalArgumentException("expected " + wanted + " fields, got " + count);
+    }
+
+    private static double parse(String value, String what) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid " + what + " '" + value + "'");
+        }
+    }
+}
@@ -0,0 +1,263 @@
+import java.util.*;
+
+/**
+ * Or-opt enhanced Lin-Kernighan solver.
+ *
+ * Each LK move is a variable-depth chain of sequential 2-opt moves grown from
+ * a base district t1 over the candidate lists, using the positive gain
+ * criterion and rolled back to the best closing point. When no LK move
+ * improves around a district, an Or-opt segment insertion is tried. The
+ * search is iterated with segment-exchange (double-bridge) kicks, keeping the
+ * best tour. Mandatory sequences are honoured by every move and kick.
+ */
+class OrLinKernighan {
+
+    private static final int MAX_DEPTH = 10;
+    private static final int KICK_SEGMENT = 50;
+    private static final int KICK_ATTEMPTS = 100; // draws per kick before giving up on the sequences
+    private static final double EPS = 0.001;
+
+    private final TSPBangladeshImproved tsp;
+    private final int n;
+
+    // Scratch for the current LK chain, reused across moves
+    private final int[] undoI = new int[MAX_DEPTH];
+    private final int[] undoJ = new int[MAX_DEPTH];
+    private final int[] addedA = new int[MAX_DEPTH];
+    private final int[] addedB = new int[MAX_DEPTH];
+    private final int[] touched = new int[2 * MAX_DEPTH + 2];
+    private int touchedCount;
+
+    // Move counts of the current improve() call
+    private SolverStats.Moves moves = new SolverStats.Moves();
+
+    // Don't-look-bit queue
+    private final int[] queue;
+    private final boolean[] queued;
+    private int head, count;
+
+    OrLinKernighan(TSPBangladeshImproved tsp) {
+        this.tsp = tsp;
+        this.n = tsp.n;
+        this.queue = new int[n];
+        this.queued = new boolean[n];
+    }
+
+    /**
+     * Build a nearest-neighbor tour from the start district, optimize it with
+     * Or-LK and apply the given number of kicks.
+     */
+    TSPBangladeshImproved.Result solve(int kicks, long seed) {
+        return solve(TSPBangladeshImproved.Budget.ofIterations(kicks), null, seed);
+    }
+
+    /**
+     * As solve(kicks, seed) but kicking until the budget is exhausted. Each
+     * new best tour is offered to the tracker, if given.
+     */
+    TSPBangladeshImproved.Result solve(TSPBangladeshImproved.Budget budget,
+                                       TSPBangladeshImproved.BestTracker tracker, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long t0 = System.nanoTime();
+        TSPBangladeshImproved.Tour tour = tsp.nearestNeighborFrom(tsp.idOf(tsp.startDistrict));
+        tsp.enforceMandatorySequences(tour);
+        tsp.stats().constructionNanos.add(System.nanoTime() - t0);
+        return improve(tour, budget, tracker, random);
+    }
+
+    /**
+     * Optimize a tour (position 0 stays fixed) and apply kicks until the
+     * budget is exhausted, returning the best tour found. The given tour is
+     * used as scratch space.
+     */
+    TSPBangladeshImproved.Result improve(TSPBangladeshImproved.Tour tour, TSPBangladeshImproved.Budget budget,
+                                         TSPBangladeshImproved.BestTracker tracker, SplittableRandom random) {
+        long startNanos = System.nanoTime();
+        SolverStats stats = tsp.stats();
+        moves = new SolverStats.Moves();
+        TSPBangladeshImproved.SequenceGuard guard = new TSPBangladeshImproved.SequenceGuard(tsp.sequenceRank, tour);
+        for (int d : tour.city) push(d);
+        optimize(tour, guard);
+
+        double best = tsp.calculateTourDistance(tour);
+        TSPBangladeshImproved.Tour bestTour = new TSPBangladeshImproved.Tour(tour);
+        stats.recordBest(best);
+        if (tracker != null) tracker.offer(bestTour, best, 0);
+
+        for (long k = 0; tour.size() >= 8 && !budget.isExhausted(k, startNanos, best); k++) {
+            if (!kick(tour, guard, random)) break;
+            stats.kicks.increment();
+            stats.iterations.increment();
+            optimize(tour, guard);
+            double dist = tsp.calculateTourDistance(tour);
+            if (dist < best - EPS) {
+                best = dist;
+                stats.recordBest(best);
+                if (tracker != null) tracker.offer(tour, best, k + 1);
+                System.arraycopy(tour.city, 0, bestTour.city, 0, tour.size());
+                System.arraycopy(tour.pos, 0, bestTour.pos, 0, n);
+            } else {
+                System.arraycopy(bestTour.city, 0, tour.city, 0, tour.size());
+                System.arraycopy(bestTour.pos, 0, tour.pos, 0, n);
+                guard.rebuild();
+            }
+        }
+        stats.add(moves);
+        stats.improvementNanos.add(System.nanoTime() - startNanos);
+        return new TSPBangladeshImproved.Result(bestTour, best);
+    }
+
+    private void optimize(TSPBangladeshImproved.Tour tour, TSPBangladeshImproved.SequenceGuard guard) {
+        while (count > 0) {
+            int a = queue[head];
+            head = head + 1 == n ? 0 : head + 1;
+            count--;
+            queued[a] = false;
+
+            if (lkMove(tour, guard, a)) {
+                for (int t = 0; t < touchedCount; t++) push(touched[t]);
+                continue;
+            }
+            int[] moved = tsp.orOptAround(tour, guard, moves, a);
+            if (moved != null) {
+                for (int d : moved) push(d);
+            }
+        }
+    }
+
+    private void push(int d) {
+        if (queued[d]) return;
+        queue[(head + count) % n] = d;
+        count++;
+        queued[d] = true;
+    }
+
+    /**
+     * Grow a chain of sequential 2-opt moves from t1 in either tour direction
+     * and keep the prefix with the best closing gain. Returns true if the tour
+     * was improved; the districts involved are left in touched.
+     */
+    private boolean lkMove(TSPBangladeshImproved.Tour tour, TSPBangladeshImproved.SequenceGuard guard, int t1) {
+        for (int side = 0; side < 2; side++) {
+            int t2 = side == 0 ? tour.next(t1) : tour.prev(t1);
+            double gain = tsp.distance(t1, t2);
+            double bestClose = EPS;
+            int bestDepth = 0, depth = 0;
+            touchedCount = 0;
+            touched[touchedCount++] = t1;
+            touched[touchedCount++] = t2;
+
+            while (depth < MAX_DEPTH) {
+                boolean forward = tour.next(t1) == t2;
+                int bestT3 = -1, bestT4 = -1;
+                double bestScore = Double.NEGATIVE_INFINITY;
+
+                for (int t3 : tsp.neighbors[t2]) {
+                    double g1 = gain - tsp.distance(t2, t3);
+                    if (g1 <= EPS) break; // sorted: positive gain criterion fails from here on
+                    if (tour.pos[t3] < 0 || t3 == t1) continue;
+                    int t4 = forward ? tour.prev(t3) : tour.next(t3);
+                    if (t4 == t2 || wasAdded(t3, t4, depth)) continue;
+                    double score = g1 + tsp.distance(t3, t4);
+                    moves.twoOptEvaluated++;
+                    if (score <= bestScore) continue;
+                    if (guard.wouldBreakMandatorySequence(segmentStart(tour, t1, t2, t3, t4, forward),
+                            segmentEnd(tour, t1, t2, t3, t4, forward))) {
+                        moves.sequenceRejected++;
+                        continue;
+                    }
+                    bestScore = score;
+                    bestT3 = t3;
+                    bestT4 = t4;
+                }
+                if (bestT3 < 0) break;
+
+                int i = segmentStart(tour, t1, t2, bestT3, bestT4, forward);
+                int j = segmentEnd(tour, t1, t2, bestT3, bestT4, forward);
+                tour.reverse(i, j);
+                guard.rebuild();
+                undoI[depth] = i;
+                undoJ[depth] = j;
+                addedA[depth] = t2;
+                addedB[depth] = bestT3;
+                depth++;
+
+                gain = bestScore;
+                t2 = bestT4;
+                touched[touchedCount++] = bestT3;
+                touched[touchedCount++] = bestT4;
+
+                double close = gain - tsp.distance(t2, t1);
+                if (close > bestClose) {
+                    bestClose = close;
+                    bestDepth = depth;
+                }
+            }
+
+            boolean rolledBack = depth > bestDepth;
+            while (depth > bestDepth) {
+                depth--;
+                tour.reverse(undoI[depth], undoJ[depth]);
+            }
+            if (rolledBack) guard.rebuild();
+            if (bestDepth > 0) {
+                moves.twoOptApplied += bestDepth;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The 2-opt step removes (t1,t2) and (t4,t3); as a successor move on
+    // (x, y) it reverses the positions between them that exclude position 0
+    private static int segmentStart(TSPBangladeshImproved.Tour tour, int t1, int t2, int t3, int t4, boolean forward) {
+        int px = tour.pos[forward ? t1 : t2], py = tour.pos[forward ? t4 : t3];
+        return Math.min(px, py) + 1;
+    }
+
+    private static int segmentEnd(TSPBangladeshImproved.Tour tour, int t1, int t2, int t3, int t4, boolean forward) {
+        int px = tour.pos[forward ? t1 : t2], py = tour.pos[forward ? t4 : t3];
+        return Math.max(px, py);
+    }
+
+    private boolean wasAdded(int a, int b, int depth) {
+        for (int k = 0; k < depth; k++) {
+            if ((addedA[k] == a && addedB[k] == b) || (addedA[k] == b && addedB[k] == a)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Exchange two adjacent random blocks (a local double-bridge) and queue
+     * the endpoints of the changed edges. Blocks that would break a mandatory
+     * sequence are counted as rejected and drawn again; returns false if
+     * KICK_ATTEMPTS draws are all rejected. Only applied kicks count against
+     * the budget.
+     */
+    private boolean kick(TSPBangladeshImproved.Tour tour, TSPBangladeshImproved.SequenceGuard guard, SplittableRandom random) {
+        int m = tour.size();
+        int p1, p2, p3;
+        for (int attempt = 0; ; attempt++) {
+            if (attempt == KICK_ATTEMPTS) return false;
+            p1 = 1 + random.nextInt(m - 2);
+            p2 = p1 + 1 + random.nextInt(Math.min(KICK_SEGMENT, m - p1 - 1));
+            p3 = p2 + 1 + random.nextInt(Math.min(KICK_SEGMENT, m - p2));
+            if (!guard.sharesSequence(p1, p2 - 1, p2, p3 - 1)) break;
+            moves.sequenceRejected++;
+        }
+
+        int[] city = tour.city;
+        push(city[p1 - 1]);
+        push(city[p1]);
+        push(city[p2 - 1]);
+        push(city[p2]);
+        push(city[p3 - 1]);
+        push(city[p3 == m ? 0 : p3]);
+
+        tour.reverse(p1, p2 - 1);
+        tour.reverse(p2, p3 - 1);
+        tour.reverse(p1, p3 - 1);
+        guard.rebuild();
+        return true;
+    }
+}
@@ -0,0 +1,151 @@
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An anytime run in the background, published as events: each new best
+ * tour as it is found, a progress snapshot every progress period, and the
+ * final result, after which subscribers are completed (or get the error the
+ * run failed with).
+ *
+ * Events reach the SubmissionPublisher with a non-blocking offer, so a slow
+ * subscriber never holds up the workers: once its buffer is full, further
+ * events are dropped for it (see dropped()) until it catches up. Each
+ * subscriber still sees events in order, and the final result is always
+ * available from result(). cancel() stops the run at the engine's next
+ * budget check, as if the budget were exhausted; the best tour so far is
+ * the result. Cancelling a subscription only unsubscribes.
+ */
+class SearchStream implements Flow.Publisher<SearchStream.Event> {
+
+    enum Kind { IMPROVEMENT, PROGRESS, FINISHED }
+
+    /**
+     * One event of the run. best is the best tour so far (null in progress
+     * events before the first tour). iteration is the engine iteration that
+     * found an improvement, otherwise the budget iterations done so far
+     * (restarts, kicks, epochs, generations or search nodes, by engine).
+     */
+    static final class Event {
+        final Kind kind;
+        final TSPBangladeshImproved.Result best;
+        final long iteration;
+        final long elapsedMillis;
+
+        Event(Kind kind, TSPBangladeshImproved.Result best, long iteration, long elapsedMillis) {
+            this.kind = kind;
+            this.best = best;
+            this.iteration = iteration;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %.2f km @%d (%d ms)", kind,
+                    best == null ? Double.POSITIVE_INFINITY : best.distance, iteration, elapsedMillis);
+        }
+    }
+
+    private final TSPBangladeshImproved tsp;
+    private final TSPBangladeshImproved.Mode mode;
+    private final TSPBangladeshImproved.Budget budget;
+    private final long progressMillis;
+    private final SubmissionPublisher<Event> publisher = new SubmissionPublisher<>();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final AtomicReference<TSPBangladeshImproved.Result> best = new AtomicReference<>();
+    private final LongAdder dropped = new LongAdder();
+    private final CompletableFuture<TSPBangladeshImproved.Result> result = new CompletableFuture<>();
+    private long startNanos;
+
+    SearchStream(TSPBangladeshImproved tsp, TSPBangladeshImproved.Mode mode,
+                 TSPBangladeshImproved.Budget budget, long progressMillis) {
+        if (progressMillis < 1) throw new IllegalArgumentException("progressMillis must be >= 1");
+        this.tsp = tsp;
+        this.mode = mode;
+        this.budget = budget;
+        this.progressMillis = progressMillis;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Event> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+
+    /**
+     * Start the run on its own thread; subscribe first so no event is
+     * missed. Returns this stream.
+     */
+    SearchStream start() {
+        if (!started.compareAndSet(false, true)) throw new IllegalStateException("Search already started");
+        startNanos = System.nanoTime();
+        ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+        ExecutorService runner = Executors.newSingleThreadExecutor();
+        ticker.scheduleAtFixedRate(() -> publish(Kind.PROGRESS, best.get(), work()),
+                progressMillis, progressMillis, TimeUnit.MILLISECONDS);
+        runner.execute(() -> {
+            try {
+                TSPBangladeshImproved.Result r = tsp.solveWithin(mode, budget.withStop(cancelled::get),
+                        (improved, iteration, elapsed) -> {
+                            best.set(improved);
+                            publish(Kind.IMPROVEMENT, improved, iteration);
+                        });
+                ticker.shutdownNow();
+                finish(r);
+                result.complete(r);
+            } catch (RuntimeException | Error e) {
+                ticker.shutdownNow();
+                fail(e);
+                result.completeExceptionally(e);
+            } finally {
+                runner.shutdown();
+            }
+        });
+        return this;
+    }
+
+    // Ask the run to stop; it finishes the iteration in progress and publishes its result
+    void cancel() {
+        cancelled.set(true);
+    }
+
+    boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    // The final result, completed when the run ends
+    CompletableFuture<TSPBangladeshImproved.Result> result() {
+        return result;
+    }
+
+    // Events dropped for subscribers whose buffers were full, summed over subscribers
+    long dropped() {
+        return dropped.sum();
+    }
+
+    // Budget iterations of the current run
+    private long work() {
+        return tsp.stats().iterations.sum();
+    }
+
+    // Offer without blocking; serialized with finish() and fail() so nothing is offered to a closed publisher
+    private synchronized void publish(Kind kind, TSPBangladeshImproved.Result best, long iteration) {
+        if (publisher.isClosed()) return;
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        publisher.offer(new Event(kind, best, iteration, elapsed), (subscriber, event) -> {
+            dropped.increment();
+            return false;
+        });
+    }
+
+    // FINISHED and close as one step, so a tick already running cannot publish after FINISHED
+    private synchronized void finish(TSPBangladeshImproved.Result r) {
+        publish(Kind.FINISHED, r, work());
+        publisher.close();
+    }
+
+    private synchronized void fail(Throwable error) {
+        publisher.closeExceptionally(error);
+    }
+}
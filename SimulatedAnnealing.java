@@ -0,0 +1,276 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Simulated annealing over random 2-opt and Or-opt moves.
+ *
+ * Moves are drawn from the candidate lists: a 2-opt move adds an edge from a
+ * random district to one of its candidates, an Or-opt move takes a random
+ * segment of one to three districts and reinserts it next to a candidate of
+ * its first district. Each is priced in O(1) from the four or six edges it
+ * changes and checked against the mandatory sequences with a SequenceGuard
+ * reading the tour positions, so neither the tour length nor the guard is
+ * recomputed after a move. Both moves count every draw as evaluated and
+ * reject sequence-breaking ones before the acceptance test.
+ *
+ * Several chains run in parallel, each with its own SplittableRandom. The
+ * search advances in epochs; after each one, the chain with the longest
+ * current tour continues from the best tour found so far. The temperature
+ * cools geometrically from the start to the end temperature over the budget
+ * (by elapsed time or by epochs, whichever is further along).
+ */
+class SimulatedAnnealing {
+
+    // Chains exchange tours, so several help even on fewer cores
+    static final int DEFAULT_CHAINS = Math.max(4, Runtime.getRuntime().availableProcessors());
+    // Moves per chain and epoch, per district
+    private static final int EPOCH_MOVES_PER_DISTRICT = 200;
+    private static final double EPS = 0.001;
+
+    private final TSPBangladeshImproved tsp;
+    private final int n;
+    private final int chains;
+    private final double startTemperature;
+    private final double endTemperature;
+
+    /**
+     * startTemperature <= 0 picks one from the instance: the mean uphill
+     * cost of random moves, scaled so half of them are accepted at first.
+     * endTemperature is relative to the start temperature.
+     */
+    SimulatedAnnealing(TSPBangladeshImproved tsp, int chains, double startTemperature, double endTemperature) {
+        if (chains < 1) throw new IllegalArgumentException("chains must be >= 1");
+        if (endTemperature <= 0 || endTemperature >= 1) throw new IllegalArgumentException("endTemperature must be in (0, 1)");
+        this.tsp = tsp;
+        this.n = tsp.n;
+        this.chains = chains;
+        this.startTemperature = startTemperature;
+        this.endTemperature = endTemperature;
+    }
+
+    SimulatedAnnealing(TSPBangladeshImproved tsp, int chains) {
+        this(tsp, chains, 0.0, 0.001);
+    }
+
+    TSPBangladeshImproved.Result solve(int epochs, long seed) {
+        return solve(TSPBangladeshImproved.Budget.ofIterations(epochs), null, seed);
+    }
+
+    /**
+     * Anneal until the budget (counted in epochs) is exhausted, then polish
+     * the best tour with 2-opt + Or-opt.
+     */
+    TSPBangladeshImproved.Result solve(TSPBangladeshImproved.Budget budget,
+                                       TSPBangladeshImproved.BestTracker tracker, long seed) {
+        long startNanos = System.nanoTime();
+        SolverStats stats = tsp.stats();
+        SplittableRandom root = new SplittableRandom(seed);
+        int start = tsp.idOf(tsp.startDistrict);
+
+        Chain[] chain = new Chain[chains];
+        for (int c = 0; c < chains; c++) {
+            chain[c] = new Chain(tsp.restartFrom(root.nextInt(n), start), root.split());
+        }
+        Chain leader = best(chain);
+        if (tracker != null) tracker.offer(leader.best, leader.bestDistance, 0);
+        stats.recordBest(leader.bestDistance);
+        if (n < 8) return new TSPBangladeshImproved.Result(leader.best, leader.bestDistance);
+
+        double t0 = startTemperature > 0 ? startTemperature : initialTemperature(chain[0]);
+        int epochMoves = EPOCH_MOVES_PER_DISTRICT * n;
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(chains, tsp.workers()));
+        long e = 0;
+        try {
+            for (; !budget.isExhausted(e, startNanos, leader.bestDistance); e++) {
+                double progress = progress(budget, e, startNanos);
+                double from = t0 * Math.pow(endTemperature, progress);
+                double to = t0 * Math.pow(endTemperature, Math.min(1.0, progress + epochProgress(budget, e, startNanos)));
+
+                List<Future<?>> futures = new ArrayList<>(chains);
+                for (Chain c : chain) futures.add(pool.submit(() -> c.run(epochMoves, from, to)));
+                for (Future<?> f : futures) f.get();
+
+                // Exchange: the chain furthest behind restarts from the best tour
+                Chain worst = chain[0];
+                for (Chain c : chain) {
+                    stats.add(c.moves);
+                    c.moves = new SolverStats.Moves();
+                    if (c.distance > worst.distance) worst = c;
+                }
+                stats.iterations.increment();
+                Chain best = best(chain);
+                if (best.bestDistance < leader.bestDistance - EPS) {
+                    stats.recordBest(best.bestDistance);
+                    if (tracker != null) tracker.offer(best.best, best.bestDistance, e + 1);
+                }
+                leader = best;
+                worst.reset(leader.best, leader.bestDistance);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Search interrupted", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Search worker failed", ex.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        TSPBangladeshImproved.Tour polished = tsp.localSearch(leader.best);
+        double distance = tsp.calculateTourDistance(polished);
+        stats.recordBest(distance);
+        if (tracker != null) tracker.offer(polished, distance, e);
+        return new TSPBangladeshImproved.Result(polished, distance);
+    }
+
+    private static Chain best(Chain[] chain) {
+        Chain best = chain[0];
+        for (Chain c : chain) {
+            if (c.bestDistance < best.bestDistance) best = c;
+        }
+        return best;
+    }
+
+    // Fraction of the budget used before epoch e: time or epochs, whichever is further
+    private static double progress(TSPBangladeshImproved.Budget budget, long e, long startNanos) {
+        double p = 0.0;
+        if (budget.maxIterations != Long.MAX_VALUE) p = (double) e / budget.maxIterations;
+        if (budget.timeLimitNanos != Long.MAX_VALUE) {
+            p = Math.max(p, (double) (System.nanoTime() - startNanos) / budget.timeLimitNanos);
+        }
+        return Math.min(p, 1.0);
+    }
+
+    // Expected share of the budget taken by one epoch
+    private static double epochProgress(TSPBangladeshImproved.Budget budget, long e, long startNanos) {
+        if (budget.maxIterations != Long.MAX_VALUE) return 1.0 / budget.maxIterations;
+        double used = progress(budget, e, startNanos);
+        return e == 0 ? 0.0 : used / e;
+    }
+
+    // Temperature at which half of the average uphill moves are accepted
+    private double initialTemperature(Chain chain) {
+        double sum = 0.0;
+        int uphill = 0;
+        for (int k = 0; k < 1000; k++) {
+            double delta = chain.sampleTwoOpt();
+            if (delta > 0 && delta < Double.POSITIVE_INFINITY) {
+                sum += delta;
+                uphill++;
+            }
+        }
+        return uphill == 0 ? 1.0 : (sum / uphill) / Math.log(2.0);
+    }
+
+    // One annealing chain: its current tour and the best tour it has seen
+    private final class Chain {
+        final TSPBangladeshImproved.Tour tour;
+        final TSPBangladeshImproved.SequenceGuard guard;
+        final SplittableRandom random;
+        final TSPBangladeshImproved.Tour best;
+        double distance, bestDistance;
+        SolverStats.Moves moves = new SolverStats.Moves();
+        private int x, y; // segment reversed by the last move from pickTwoOpt
+
+        Chain(TSPBangladeshImproved.Tour tour, SplittableRandom random) {
+            this.tour = tour;
+            this.random = random;
+            this.guard = new TSPBangladeshImproved.SequenceGuard(tsp.sequenceRank, tour); // positional checks only
+            this.best = new TSPBangladeshImproved.Tour(tour);
+            this.distance = tsp.calculateTourDistance(tour);
+            this.bestDistance = distance;
+        }
+
+        void reset(TSPBangladeshImproved.Tour from, double length) {
+            System.arraycopy(from.city, 0, tour.city, 0, n);
+            System.arraycopy(from.pos, 0, tour.pos, 0, n);
+            distance = length;
+        }
+
+        // Run moves at temperatures cooling geometrically from 'from' to 'to'
+        void run(int count, double from, double to) {
+            double cooling = Math.pow(to / from, 1.0 / count);
+            double temperature = from;
+            for (int k = 0; k < count; k++, temperature *= cooling) {
+                boolean applied = random.nextBoolean() ? twoOpt(temperature) : orOpt(temperature);
+                if (applied && distance < bestDistance - EPS) {
+                    bestDistance = distance;
+                    System.arraycopy(tour.city, 0, best.city, 0, n);
+                    System.arraycopy(tour.pos, 0, best.pos, 0, n);
+                }
+            }
+            // Resynchronize the running total with the tour
+            distance = tsp.calculateTourDistance(tour);
+        }
+
+        private boolean accept(double delta, double temperature) {
+            return delta <= 0 || random.nextDouble() < Math.exp(-delta / temperature);
+        }
+
+        // Random 2-opt move adding edge (a, c) for a candidate c of a; infinity if infeasible
+        private double pickTwoOpt() {
+            int a = random.nextInt(n);
+            int[] candidates = tsp.neighbors[a];
+            if (candidates.length == 0) return Double.POSITIVE_INFINITY;
+            int c = candidates[random.nextInt(candidates.length)];
+            int b = tour.next(a), d = tour.next(c);
+            if (c == b || d == a) return Double.POSITIVE_INFINITY;
+            int px = tour.pos[a], py = tour.pos[c];
+            int i = Math.min(px, py) + 1, j = Math.max(px, py);
+            if (i >= j || guard.wouldBreakMandatorySequenceAtPositions(i, j)) {
+                moves.sequenceRejected++;
+                return Double.POSITIVE_INFINITY;
+            }
+            x = i;
+            y = j;
+            return tsp.distance(a, c) + tsp.distance(b, d) - tsp.distance(a, b) - tsp.distance(c, d);
+        }
+
+        double sampleTwoOpt() {
+            return pickTwoOpt();
+        }
+
+        private boolean twoOpt(double temperature) {
+            double delta = pickTwoOpt();
+            moves.twoOptEvaluated++;
+            if (delta == Double.POSITIVE_INFINITY || !accept(delta, temperature)) return false;
+            tour.reverse(x, y);
+            distance += delta;
+            moves.twoOptApplied++;
+            return true;
+        }
+
+        // Random Or-opt move: tour[i..j] reinserted after position k, in the cheaper orientation
+        private boolean orOpt(double temperature) {
+            moves.orOptEvaluated++;
+            int[] city = tour.city;
+            int len = 1 + random.nextInt(3);
+            if (n - 2 - len < 1) return false;
+            int i = 1 + random.nextInt(n - 1 - len), j = i + len - 1;
+            int first = city[i], last = city[j], prev = city[i - 1], next = city[j + 1];
+            int[] candidates = tsp.neighbors[first];
+            if (candidates.length == 0) return false;
+            int c = candidates[random.nextInt(candidates.length)];
+            int k = random.nextBoolean() ? tour.pos[c] : tour.pos[c] - 1;
+            if (k < 0) k = n - 1;
+            if (k >= i - 1 && k <= j) return false;
+
+            int u = city[k], v = city[k + 1 == n ? 0 : k + 1];
+            double removed = tsp.distance(prev, first) + tsp.distance(last, next) + tsp.distance(u, v);
+            double forward = tsp.distance(u, first) + tsp.distance(last, v);
+            double backward = tsp.distance(u, last) + tsp.distance(first, v);
+            boolean reversed = backward < forward;
+            int from = k > j ? j + 1 : k + 1, to = k > j ? k : i - 1;
+            if (guard.sharesSequenceAtPositions(i, j, from, to)
+                    || (reversed && guard.wouldBreakMandatorySequenceAtPositions(i, j))) {
+                moves.sequenceRejected++;
+                return false;
+            }
+            double delta = tsp.distance(prev, next) + (reversed ? backward : forward) - removed;
+            if (!accept(delta, temperature)) return false;
+            tour.moveSegment(i, j, k, reversed);
+            distance += delta;
+            moves.orOptApplied++;
+            return true;
+        }
+    }
+}
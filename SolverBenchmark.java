@@ -0,0 +1,109 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.*;
+
+/**
+ * Benchmarks for the solver hot paths.
+ *
+ * The project builds with plain javac and has no dependency manager, so JMH
+ * is not available; this harness follows the same shape by hand. Each
+ * benchmark runs warm-up iterations before the measured ones, seeds are
+ * fixed, and results go to a sink so the JIT cannot drop the work. Instances:
+ * the 64 districts with and without mandatory sequences, and synthetic
+ * Haversine-only instances.
+ *
+ * Run: java SolverBenchmark [name filter]
+ */
+class SolverBenchmark {
+
+    private static final long SEED = 42L;
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASURED_ITERATIONS = 10;
+    private static final long ITERATION_NANOS = 200_000_000L;
+
+    // Keeps benchmark results alive
+    static volatile double sink;
+
+    interface Op {
+        double run();
+    }
+
+    public static void main(String[] args) {
+        String filter = args.length > 0 ? args[0] : "";
+        Map<String, TSPBangladeshImproved> instances = new LinkedHashMap<>();
+        instances.put("bd64", new TSPBangladeshImproved(SEED));
+        instances.put("bd64-free", new TSPBangladeshImproved(SEED, false));
+        instances.put("syn1000", TSPBangladeshImproved.synthetic(1000, SEED, true));
+        instances.put("syn1000-free", TSPBangladeshImproved.synthetic(1000, SEED, false));
+
+        System.out.printf("%-40s %14s %12s%n", "Benchmark", "ns/op", "error");
+        for (Map.Entry<String, TSPBangladeshImproved> e : instances.entrySet()) {
+            String name = e.getKey();
+            TSPBangladeshImproved tsp = e.getValue();
+            int n = tsp.n;
+            String a = tsp.allDistricts.get(0), b = tsp.allDistricts.get(n / 2);
+            TSPBangladeshImproved.Tour seedTour = tsp.nearestNeighborFrom(0);
+            tsp.enforceMandatorySequences(seedTour);
+            TSPBangladeshImproved.SequenceGuard guard =
+                    new TSPBangladeshImproved.SequenceGuard(tsp.sequenceRank, seedTour);
+            SplittableRandom random = new SplittableRandom(SEED);
+
+            run(filter, name + ".getDistance", () -> tsp.getDistance(a, b));
+            run(filter, name + ".distance", () -> tsp.distance(random.nextInt(n), random.nextInt(n)));
+            run(filter, name + ".calculateHaversineDistance", () -> tsp.calculateHaversineDistance(a, b));
+            run(filter, name + ".wouldBreakMandatorySequence", () -> {
+                int i = 1 + random.nextInt(n - 1);
+                int j = i + random.nextInt(n - i);
+                return guard.wouldBreakMandatorySequence(i, j) ? 1 : 0;
+            });
+            run(filter, name + ".nearestNeighborFrom", () -> tsp.nearestNeighborFrom(random.nextInt(n)).size());
+            run(filter, name + ".twoOptImprove", () -> tsp.calculateTourDistance(tsp.twoOptImprove(seedTour)));
+            run(filter, name + ".localSearch", () -> tsp.calculateTourDistance(tsp.localSearch(seedTour)));
+            if (n <= 100) {
+                run(filter, name + ".multiStartSearch(20)", () -> quietly(() -> tsp.multiStartSearch(20).distance));
+                run(filter, name + ".orLk(100)", () -> new OrLinKernighan(tsp).solve(100, SEED).distance);
+            }
+        }
+    }
+
+    private static void run(String filter, String name, Op op) {
+        if (!name.contains(filter)) return;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) iteration(op);
+        double[] samples = new double[MEASURED_ITERATIONS];
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) samples[i] = iteration(op);
+
+        double mean = 0.0;
+        for (double s : samples) mean += s;
+        mean /= samples.length;
+        double var = 0.0;
+        for (double s : samples) var += (s - mean) * (s - mean);
+        double error = Math.sqrt(var / (samples.length - 1));
+        System.out.printf("%-40s %14.1f %12.1f%n", name, mean, error);
+    }
+
+    // Run op repeatedly for about ITERATION_NANOS and return the mean ns/op
+    private static double iteration(Op op) {
+        long ops = 0;
+        double acc = 0.0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            acc += op.run();
+            ops++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ITERATION_NANOS);
+        sink = acc;
+        return (double) elapsed / ops;
+    }
+
+    // multiStartSearch prints progress; keep it out of the report
+    private static double quietly(Op op) {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            return op.run();
+        } finally {
+            System.setOut(out);
+        }
+    }
+}
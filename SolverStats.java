@@ -0,0 +1,164 @@
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of one solver run: restarts and kicks, local search moves
+ * evaluated, applied and rejected by the mandatory sequences, time spent in
+ * construction, improvement and scoring (summed over worker threads), where
+ * the distance matrix came from, and the best distance over time.
+ *
+ * Counters are LongAdders so that workers can update them without
+ * contention. Local search counts its moves in a Moves object owned by the
+ * search and adds them here once it finishes, keeping the move loops free of
+ * shared writes.
+ */
+class SolverStats {
+
+    final LongAdder restarts = new LongAdder();
+    final LongAdder kicks = new LongAdder();
+    // Budget iterations of anytime engines: restarts, kicks, epochs, generations or search nodes
+    final LongAdder iterations = new LongAdder();
+    final LongAdder twoOptEvaluated = new LongAdder();
+    final LongAdder twoOptApplied = new LongAdder();
+    final LongAdder orOptEvaluated = new LongAdder();
+    final LongAdder orOptApplied = new LongAdder();
+    final LongAdder sequenceRejected = new LongAdder();
+    final LongAdder timeWindowRejected = new LongAdder();
+    final LongAdder constructionNanos = new LongAdder();
+    final LongAdder improvementNanos = new LongAdder();
+    final LongAdder scoringNanos = new LongAdder();
+
+    // Distance source: pairs with a road path vs. pairs left to the Haversine fallback
+    final boolean matrixFromSnapshot;
+    final long matrixBuildNanos;
+    final long roadPairs, haversinePairs;
+
+    final long startNanos = System.nanoTime();
+    private final List<TracePoint> trace = new ArrayList<>();
+    private double best = Double.POSITIVE_INFINITY;
+
+    SolverStats(boolean matrixFromSnapshot, long matrixBuildNanos, long roadPairs, long haversinePairs) {
+        this.matrixFromSnapshot = matrixFromSnapshot;
+        this.matrixBuildNanos = matrixBuildNanos;
+        this.roadPairs = roadPairs;
+        this.haversinePairs = haversinePairs;
+    }
+
+    // Move counts of a single local search
+    static final class Moves {
+        long twoOptEvaluated, twoOptApplied, orOptEvaluated, orOptApplied, sequenceRejected, timeWindowRejected;
+    }
+
+    void add(Moves moves) {
+        twoOptEvaluated.add(moves.twoOptEvaluated);
+        twoOptApplied.add(moves.twoOptApplied);
+        orOptEvaluated.add(moves.orOptEvaluated);
+        orOptApplied.add(moves.orOptApplied);
+        sequenceRejected.add(moves.sequenceRejected);
+        timeWindowRejected.add(moves.timeWindowRejected);
+    }
+
+    // Best distance at some point of the run
+    static final class TracePoint {
+        final long elapsedMillis;
+        final double distance;
+
+        TracePoint(long elapsedMillis, double distance) {
+            this.elapsedMillis = elapsedMillis;
+            this.distance = distance;
+        }
+    }
+
+    /**
+     * Record a tour distance found by the run; it is added to the trace if
+     * it improves on the best so far.
+     */
+    synchronized void recordBest(double distance) {
+        if (distance >= best) return;
+        best = distance;
+        trace.add(new TracePoint(elapsedMillis(), distance));
+    }
+
+    synchronized double best() {
+        return best;
+    }
+
+    synchronized List<TracePoint> trace() {
+        return new ArrayList<>(trace);
+    }
+
+    long elapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Prometheus text exposition of the counters, phase times and best
+     * distance, e.g. for a node_exporter textfile collector.
+     */
+    String toPrometheus() {
+        StringBuilder out = new StringBuilder();
+        counter(out, "tsp_restarts_total", "Multi-start restarts completed", restarts.sum());
+        counter(out, "tsp_kicks_total", "Or-LK perturbation kicks applied", kicks.sum());
+        counter(out, "tsp_budget_iterations_total", "Iterations counted against the search budget", iterations.sum());
+        header(out, "tsp_moves_evaluated_total", "Local search moves evaluated", "counter");
+        sample(out, "tsp_moves_evaluated_total{move=\"2opt\"}", twoOptEvaluated.sum());
+        sample(out, "tsp_moves_evaluated_total{move=\"oropt\"}", orOptEvaluated.sum());
+        header(out, "tsp_moves_applied_total", "Local search moves applied", "counter");
+        sample(out, "tsp_moves_applied_total{move=\"2opt\"}", twoOptApplied.sum());
+        sample(out, "tsp_moves_applied_total{move=\"oropt\"}", orOptApplied.sum());
+        counter(out, "tsp_moves_rejected_by_sequence_total",
+                "Improving moves or kicks rejected by a mandatory sequence", sequenceRejected.sum());
+        counter(out, "tsp_moves_rejected_by_time_window_total",
+                "Improving moves rejected for adding time warp", timeWindowRejected.sum());
+        header(out, "tsp_phase_seconds_total", "Time spent per solver phase, summed over threads", "counter");
+        sample(out, "tsp_phase_seconds_total{phase=\"construction\"}", seconds(constructionNanos.sum()));
+        sample(out, "tsp_phase_seconds_total{phase=\"improvement\"}", seconds(improvementNanos.sum()));
+        sample(out, "tsp_phase_seconds_total{phase=\"scoring\"}", seconds(scoringNanos.sum()));
+        header(out, "tsp_distance_pairs", "District pairs by distance source", "gauge");
+        sample(out, "tsp_distance_pairs{source=\"road\"}", roadPairs);
+        sample(out, "tsp_distance_pairs{source=\"haversine\"}", haversinePairs);
+        header(out, "tsp_distance_matrix_from_snapshot", "1 if the distance matrix was loaded from a snapshot", "gauge");
+        sample(out, "tsp_distance_matrix_from_snapshot", matrixFromSnapshot ? 1 : 0);
+        header(out, "tsp_distance_matrix_build_seconds", "Time to load or build the distance matrix", "gauge");
+        sample(out, "tsp_distance_matrix_build_seconds", seconds(matrixBuildNanos));
+        header(out, "tsp_best_distance_km", "Best tour distance found", "gauge");
+        sample(out, "tsp_best_distance_km", best());
+        header(out, "tsp_run_seconds", "Wall-clock time since the run started", "gauge");
+        sample(out, "tsp_run_seconds", elapsedMillis() / 1000.0);
+        return out.toString();
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        header(out, name, help, "counter");
+        sample(out, name, value);
+    }
+
+    private static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, double value) {
+        out.append(name).append(' ');
+        if (value == Double.POSITIVE_INFINITY) out.append("+Inf");
+        else if (value == Math.rint(value) && Math.abs(value) < 1e15) out.append((long) value);
+        else out.append(value);
+        out.append('\n');
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1e9;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("restarts=%d kicks=%d 2-opt=%d/%d or-opt=%d/%d (applied/evaluated) "
+                        + "sequence-rejected=%d time-window-rejected=%d construction=%dms improvement=%dms scoring=%dms",
+                restarts.sum(), kicks.sum(), twoOptApplied.sum(), twoOptEvaluated.sum(),
+                orOptApplied.sum(), orOptEvaluated.sum(), sequenceRejected.sum(), timeWindowRejected.sum(),
+                TimeUnit.NANOSECONDS.toMillis(constructionNanos.sum()),
+                TimeUnit.NANOSECONDS.toMillis(improvementNanos.sum()),
+                TimeUnit.NANOSECONDS.toMillis(scoringNanos.sum()));
+    }
+}
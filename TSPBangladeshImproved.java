@@ -1,16 +1,77 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 public class TSPBangladeshImproved {
 
-    private Map<String, Map<String, Double>> graph;
+    // Highway edges as parallel primitive arrays (a later edge for the same direction wins; one-way edges run from -> to only)
+    private int[] edgeFrom, edgeTo;
+    private double[] edgeWeight;
+    private boolean[] edgeOneWay;
+    private int edgeCount;
+
+    // Districts whose distances or constraints changed since the last reoptimize()
+    private boolean[] changed;
     private Map<String, DistrictCoords> coordinates;
-    private List<String> allDistricts;
-    private final String startDistrict = "Dhaka";
+    List<String> allDistricts;
+    static final String DEFAULT_START = "Dhaka";
+    final String startDistrict;
+    private final long seed;
     private final Random rng;
-    private Map<String, Double> distanceCache;
+
+    // Dense n x n distance matrix (row-major), indexed by district id
+    private Map<String, Integer> districtIndex;
+    private double[] distanceMatrix;
+    int n;
+    // Whether some d(i, j) != d(j, i); see isAsymmetric
+    private boolean asymmetric;
+    // Whether applyDistances overlaid provider distances since the matrix was last built from roads
+    private boolean distancesOverlaid;
+
+    // Time-of-day slices (sorted by start), the one in use, and their matrices by index + 1 (0 = no slice)
+    private final List<TimeSlice> timeSlices = new ArrayList<>();
+    private TimeSlice activeSlice;
+    private volatile double[][] sliceMatrices;
+
+    // Candidate lists: the K nearest districts of each district, closest first
+    private static final int NEIGHBOR_LIST_SIZE = 10;
+    int[][] neighbors;
+    private static final int OR_OPT_MAX_SEGMENT = 3;
     
     // Define mandatory route sequences
     private List<List<String>> mandatorySequences;
+    private int[][] sequenceIds;
+    int[][] sequenceRank; // sequenceRank[s][d] = index of district d in sequence s, -1 if absent
+
+    // Grid and sequence tables for nearestNeighborFrom; scratch is per thread
+    private volatile NearestNeighborBuilder.Index nearestIndex;
+    private volatile double roadRatio = Double.NaN; // see NearestNeighborBuilder.roadRatio; NaN until needed
+    private final ThreadLocal<NearestNeighborBuilder> nearestBuilders = new ThreadLocal<>();
+
+    // Heuristic that builds the initial tour of each restart
+    private volatile Construction construction = Construction.NEAREST_NEIGHBOR;
+
+    // Service times and opening windows honoured by local search, null if none
+    private volatile TimeWindows timeWindows;
+
+    // Threads per search; route views of a batch search single-threaded
+    private volatile int workers = Runtime.getRuntime().availableProcessors();
+
+    // For a route view (see routeView): the network it was sliced from and each district's id there
+    private TSPBangladeshImproved network;
+    private int[] networkId;
+
+    // Metrics of the current or last run, see stats()
+    private volatile SolverStats stats;
+    private boolean matrixFromSnapshot;
+    private long matrixBuildNanos;
 
     // Store district coordinates for Haversine fallback
     static class DistrictCoords {
@@ -22,16 +83,154 @@ public class TSPBangladeshImproved {
     }
 
     public TSPBangladeshImproved(long seed) {
-        graph = new HashMap<>();
+        this(seed, true);
+    }
+
+    TSPBangladeshImproved(long seed, boolean withMandatoryRoutes) {
+        this(seed, builtInNetwork(withMandatoryRoutes), null);
+    }
+
+    /**
+     * Built-in network with the distance matrix loaded from (or saved to) a
+     * snapshot file, see DistanceSnapshot
+     */
+    public TSPBangladeshImproved(long seed, Path snapshot) {
+        this(seed, builtInNetwork(true), snapshot);
+    }
+
+    private static Consumer<TSPBangladeshImproved> builtInNetwork(boolean withMandatoryRoutes) {
+        return tsp -> {
+            tsp.initializeDistricts();
+            tsp.initializeCoordinates();
+            tsp.initializeEdges();
+            if (withMandatoryRoutes) tsp.initializeMandatoryRoutes();
+        };
+    }
+
+    // Load districts, coordinates, edges and sequences, then build the solver indexes
+    private TSPBangladeshImproved(long seed, Consumer<TSPBangladeshImproved> loader, Path snapshot) {
+        edgeFrom = new int[256];
+        edgeTo = new int[256];
+        edgeWeight = new double[256];
+        edgeOneWay = new boolean[256];
         coordinates = new HashMap<>();
         allDistricts = new ArrayList<>();
-        distanceCache = new HashMap<>();
+        districtIndex = new HashMap<>();
         mandatorySequences = new ArrayList<>();
+        startDistrict = DEFAULT_START;
+        this.seed = seed;
         rng = new Random(seed);
-        initializeDistricts();
-        initializeCoordinates();
-        initializeEdges();
-        initializeMandatoryRoutes();
+        loader.accept(this);
+        long t0 = System.nanoTime();
+        loadOrBuildDistanceMatrix(snapshot);
+        matrixBuildNanos = System.nanoTime() - t0;
+        asymmetric = detectAsymmetry();
+        changed = new boolean[n];
+        buildNeighborLists();
+        buildSequenceIds();
+        stats = newStats();
+    }
+
+    /**
+     * Route view of a network: the given districts only, starting at start
+     * (added if missing), with the given mandatory sequences instead of the
+     * network's. The distance matrix is sliced from the network's, so no
+     * edges are loaded and no shortest paths are computed. The view keeps
+     * no roads and cannot be edited; see BatchRouter.
+     */
+    private TSPBangladeshImproved(TSPBangladeshImproved network, String start, List<String> districts,
+                                  List<List<String>> sequences, long seed) {
+        long t0 = System.nanoTime();
+        edgeFrom = new int[0];
+        edgeTo = new int[0];
+        edgeWeight = new double[0];
+        edgeOneWay = new boolean[0];
+        coordinates = new HashMap<>();
+        allDistricts = new ArrayList<>();
+        districtIndex = new HashMap<>();
+        mandatorySequences = new ArrayList<>();
+        startDistrict = start;
+        this.seed = seed;
+        rng = new Random(seed);
+        this.network = network;
+        construction = network.construction;
+
+        addDistrict(start);
+        for (String d : districts) {
+            if (!districtIndex.containsKey(d)) addDistrict(d);
+        }
+        n = allDistricts.size();
+        networkId = new int[n];
+        for (int i = 0; i < n; i++) {
+            String d = allDistricts.get(i);
+            networkId[i] = network.idOf(d);
+            DistrictCoords c = network.coordinates.get(d);
+            if (c != null) coordinates.put(d, c);
+        }
+        distanceMatrix = new double[n * n];
+        int stride = network.n;
+        for (int i = 0; i < n; i++) {
+            int row = networkId[i] * stride;
+            for (int j = 0; j < n; j++) distanceMatrix[i * n + j] = network.distanceMatrix[row + networkId[j]];
+        }
+        for (List<String> sequence : sequences) {
+            for (String d : sequence) idOf(d);
+            mandatorySequences.add(new ArrayList<>(sequence));
+        }
+        matrixFromSnapshot = network.matrixFromSnapshot;
+        matrixBuildNanos = System.nanoTime() - t0;
+        asymmetric = detectAsymmetry();
+        changed = new boolean[n];
+        buildNeighborLists();
+        buildSequenceIds();
+        stats = newStats();
+    }
+
+    TSPBangladeshImproved routeView(String start, List<String> districts, List<List<String>> sequences, long seed) {
+        return new TSPBangladeshImproved(this, start, districts, sequences, seed);
+    }
+
+    /**
+     * Network read from CSV files instead of the built-in districts, see
+     * NetworkLoader for the formats. sequences and snapshot may be null.
+     */
+    public static TSPBangladeshImproved fromFiles(long seed, Path nodes, Path edges, Path sequences,
+                                                  Path snapshot) throws IOException {
+        Consumer<TSPBangladeshImproved> network = tsp -> {
+            try {
+                NetworkLoader.readNodes(tsp, nodes);
+                NetworkLoader.readEdges(tsp, edges);
+                if (sequences != null) NetworkLoader.readSequences(tsp, sequences);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        try {
+            return new TSPBangladeshImproved(seed, network, snapshot);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Synthetic instance for benchmarks: random coordinates inside Bangladesh's
+     * bounding box, Haversine distances only. Node 0 is named after the start
+     * district; optionally nodes 1-8 form one mandatory sequence.
+     */
+    static TSPBangladeshImproved synthetic(int size, long seed, boolean withSequence) {
+        Consumer<TSPBangladeshImproved> network = tsp -> {
+            Random random = new Random(seed);
+            for (int i = 0; i < size; i++) {
+                String name = i == 0 ? tsp.startDistrict : "N" + i;
+                tsp.addDistrict(name, 20.7 + random.nextDouble() * 5.9, 88.0 + random.nextDouble() * 4.7);
+            }
+            if (withSequence && size > 9) {
+                List<String> sequence = new ArrayList<>();
+                for (int i = 1; i <= 8; i++) sequence.add("N" + i);
+                tsp.mandatorySequences.add(sequence);
+            }
+        };
+        return new TSPBangladeshImproved(seed, network, null);
     }
     
 
@@ -54,6 +253,26 @@ public class TSPBangladeshImproved {
         // mandatorySequences.add(Arrays.asList("Kishoreganj", "Narsingdi", "Brahmanbaria"));
     }
 
+    /**
+     * Add a mandatory sequence; unknown names are rejected. On a live solver
+     * its districts are marked for reoptimize().
+     */
+    public void addMandatorySequence(List<String> sequence) {
+        for (String d : sequence) idOf(d);
+        mandatorySequences.add(new ArrayList<>(sequence));
+        if (sequenceIds != null) {
+            buildSequenceIds();
+            for (String d : sequence) changed[idOf(d)] = true;
+        }
+    }
+
+    public boolean removeMandatorySequence(List<String> sequence) {
+        if (!mandatorySequences.remove(sequence)) return false;
+        buildSequenceIds();
+        for (String d : sequence) changed[idOf(d)] = true;
+        return true;
+    }
+
     private void initializeDistricts() {
         String[] districts = {
             "Dhaka", "Faridpur", "Gazipur", "Gopalganj", "Jamalpur", "Kishoreganj",
@@ -69,11 +288,21 @@ public class TSPBangladeshImproved {
             "Barguna", "Bhola", "Jhalokati", "Patuakhali", "Pirojpur"
         };
         for (String d : districts) {
-            allDistricts.add(d);
-            graph.put(d, new HashMap<>());
+            addDistrict(d);
         }
     }
 
+    void addDistrict(String d) {
+        if (districtIndex.containsKey(d)) throw new IllegalArgumentException("Duplicate district: " + d);
+        districtIndex.put(d, allDistricts.size());
+        allDistricts.add(d);
+    }
+
+    void addDistrict(String d, double lat, double lon) {
+        addDistrict(d);
+        coordinates.put(d, new DistrictCoords(lat, lon));
+    }
+
     // Approximate coordinates for Bangladesh districts
     private void initializeCoordinates() {
         coordinates.put("Dhaka", new DistrictCoords(23.8103, 90.4125));
@@ -148,10 +377,36 @@ public class TSPBangladeshImproved {
         coordinates.put("Pirojpur", new DistrictCoords(22.5791, 89.9759));
     }
 
-    private void addEdge(String a, String b, double distance) {
-        if (!graph.containsKey(a) || !graph.containsKey(b)) return;
-        graph.get(a).put(b, distance);
-        graph.get(b).put(a, distance);
+    // Unknown district names are rejected rather than silently dropped
+    void addEdge(String a, String b, double distance) {
+        addEdge(idOf(a), idOf(b), distance);
+    }
+
+    void addEdge(int a, int b, double distance) {
+        addEdge(a, b, distance, false);
+    }
+
+    // One-way road: from -> to only, e.g. a ferry or a peak-hour exit
+    void addArc(String from, String to, double distance) {
+        addEdge(idOf(from), idOf(to), distance, true);
+    }
+
+    private void addEdge(int a, int b, double distance, boolean oneWay) {
+        if (a == b) throw new IllegalArgumentException("Self-loop on " + allDistricts.get(a));
+        if (!(distance >= 0) || Double.isInfinite(distance)) {
+            throw new IllegalArgumentException("Invalid distance " + distance + " for "
+                    + allDistricts.get(a) + " - " + allDistricts.get(b));
+        }
+        if (edgeCount == edgeFrom.length) {
+            edgeFrom = Arrays.copyOf(edgeFrom, edgeCount * 2);
+            edgeTo = Arrays.copyOf(edgeTo, edgeCount * 2);
+            edgeWeight = Arrays.copyOf(edgeWeight, edgeCount * 2);
+            edgeOneWay = Arrays.copyOf(edgeOneWay, edgeCount * 2);
+        }
+        edgeFrom[edgeCount] = a;
+        edgeTo[edgeCount] = b;
+        edgeOneWay[edgeCount] = oneWay;
+        edgeWeight[edgeCount++] = distance;
     }
 
     // Complete highway network with real distances
@@ -442,7 +697,7 @@ public class TSPBangladeshImproved {
     
     //  Calculate Haversine distance between two districts(*1.3)
 
-    private double calculateHaversineDistance(String a, String b) {
+    double calculateHaversineDistance(String a, String b) {
         DistrictCoords c1 = coordinates.get(a);
         DistrictCoords c2 = coordinates.get(b);
         if (c1 == null || c2 == null) return 300.0; // fallback
@@ -462,204 +717,1258 @@ public class TSPBangladeshImproved {
     }
 
     /**
-     * Get distance between two districts
-     * 1) Existing edge, 2) Cached distance, 3) Haversine estimate
+     * Precompute all pairwise distances once
+     * 1) Shortest road distance over the highway graph, 2) Haversine estimate
+     * for pairs the graph does not connect. One Dijkstra per source, run in
+     * parallel; cheap enough to call again after any graph change. Roads
+     * of the time slice in use, if any, are included.
      */
-    public double getDistance(String a, String b) {
-        // Check if direct edge exists
-        if (graph.get(a).containsKey(b)) {
-            return graph.get(a).get(b);
+    void buildDistanceMatrix() {
+        n = allDistricts.size();
+        distanceMatrix = shortestPathMatrix(activeSlice);
+        distancesOverlaid = false;
+    }
+
+    // All-pairs matrix of the road graph plus the one-way roads of slice (none if null)
+    private double[] shortestPathMatrix(TimeSlice slice) {
+        int roads = edgeCount;
+        try {
+            if (slice != null) {
+                for (int k = 0; k < slice.size(); k++) {
+                    addEdge(idOf(slice.from.get(k)), idOf(slice.to.get(k)), slice.km.get(k), true);
+                }
+            }
+            double[] matrix = new double[n * n];
+            Adjacency adj = buildAdjacency();
+            int[] offsets = adj.offsets, targets = adj.targets;
+            double[] weights = adj.weights;
+
+            IntStream.range(0, n).parallel().forEach(source -> {
+                int row = source * n;
+                shortestPathsFrom(source, offsets, targets, weights, matrix, row);
+                String a = allDistricts.get(source);
+                for (int j = 0; j < n; j++) {
+                    if (j != source && matrix[row + j] == Double.POSITIVE_INFINITY) {
+                        matrix[row + j] = calculateHaversineDistance(a, allDistricts.get(j));
+                    }
+                }
+            });
+            return matrix;
+        } finally {
+            edgeCount = roads;
         }
-        
-        // Check cache
-        String key = a.compareTo(b) <= 0 ? a + "|" + b : b + "|" + a;
-        if (distanceCache.containsKey(key)) {
-            return distanceCache.get(key);
+    }
+
+    private void loadOrBuildDistanceMatrix(Path snapshot) {
+        if (snapshot == null) {
+            buildDistanceMatrix();
+            return;
+        }
+        n = allDistricts.size();
+        long fingerprint = networkFingerprint();
+        double[] matrix = new double[n * n];
+        if (DistanceSnapshot.load(snapshot, fingerprint, allDistricts, matrix)) {
+            distanceMatrix = matrix;
+            matrixFromSnapshot = true;
+            return;
+        }
+        buildDistanceMatrix();
+        try {
+            DistanceSnapshot.write(snapshot, fingerprint, allDistricts, distanceMatrix);
+        } catch (IOException e) {
+            System.err.println("Could not write distance snapshot " + snapshot + ": " + e.getMessage());
         }
-        
-        // Calculate Haversine distance as estimate
-        double dist = calculateHaversineDistance(a, b);
-        distanceCache.put(key, dist);
-        return dist;
     }
 
     /**
-     * Improved Nearest Neighbor with mandatory sequences enforced
+     * Set the road distance between two districts on a live solver (adding
+     * the road if missing) and update the distance matrix incrementally.
+     * Not safe while a search is running on this instance.
      */
-    public List<String> nearestNeighborFrom(String start) {
-        Set<String> visited = new HashSet<>();
-        List<String> tour = new ArrayList<>();
-        String current = start;
-        tour.add(start);
-        visited.add(current);
+    public void setEdge(String a, String b, double km) {
+        requireNetwork();
+        int u = idOf(a), v = idOf(b);
+        double old = edgeWeightOf(u, v);
+        addEdge(u, v, km);
+        updateDistances(u, v, old, km);
+        if (timeWindows != null) timeWindows.refreshEdgeTypes();
+    }
 
-        while (visited.size() < allDistricts.size()) {
-            String next = null;
-            
-            // Check if current city is start of a mandatory sequence
-            for (List<String> sequence : mandatorySequences) {
-                if (sequence.contains(current)) {
-                    int idx = sequence.indexOf(current);
-                    // Check if we should follow this sequence
-                    if (idx < sequence.size() - 1) {
-                        String nextInSequence = sequence.get(idx + 1);
-                        if (!visited.contains(nextInSequence)) {
-                            // Verify all districts before this in sequence are visited
-                            boolean canFollow = true;
-                            for (int i = 0; i < idx; i++) {
-                                if (!visited.contains(sequence.get(i))) {
-                                    canFollow = false;
-                                    break;
-                                }
-                            }
-                            if (canFollow) {
-                                next = nextInSequence;
-                                break;
-                            }
-                        }
+    /**
+     * Set the one-way road distance from one district to another on a live
+     * solver. The reverse direction keeps its road, if any; the matrix is
+     * rebuilt, since shortest paths are no longer symmetric.
+     */
+    public void setArc(String from, String to, double km) {
+        requireNetwork();
+        int u = idOf(from), v = idOf(to);
+        addEdge(u, v, km, true);
+        updateDistances(u, v, Double.POSITIVE_INFINITY, km);
+        if (timeWindows != null) timeWindows.refreshEdgeTypes();
+    }
+
+    /**
+     * Close the road between two districts, both ways, on a live solver.
+     * Returns false if there was no such road.
+     */
+    public boolean removeEdge(String a, String b) {
+        requireNetwork();
+        int u = idOf(a), v = idOf(b);
+        double old = edgeWeightOf(u, v);
+        if (old == Double.POSITIVE_INFINITY) return false;
+        int kept = 0;
+        for (int e = 0; e < edgeCount; e++) {
+            boolean match = (edgeFrom[e] == u && edgeTo[e] == v) || (edgeFrom[e] == v && edgeTo[e] == u);
+            if (match) continue;
+            edgeFrom[kept] = edgeFrom[e];
+            edgeTo[kept] = edgeTo[e];
+            edgeOneWay[kept] = edgeOneWay[e];
+            edgeWeight[kept++] = edgeWeight[e];
+        }
+        edgeCount = kept;
+        updateDistances(u, v, old, Double.POSITIVE_INFINITY);
+        if (timeWindows != null) timeWindows.refreshEdgeTypes();
+        return true;
+    }
+
+    private void requireNetwork() {
+        if (network != null) throw new UnsupportedOperationException("A route view has no roads of its own");
+    }
+
+    // Current weight of road u-v (the last one added), or infinity if none
+    private double edgeWeightOf(int u, int v) {
+        for (int e = edgeCount - 1; e >= 0; e--) {
+            if ((edgeFrom[e] == u && edgeTo[e] == v) || (edgeFrom[e] == v && edgeTo[e] == u)) return edgeWeight[e];
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Repair the matrix after road u-v changed from oldW to newW. A shorter
+     * road is relaxed through every pair in O(n^2); a longer or closed road
+     * recomputes only the rows whose shortest paths used it. Graphs with
+     * Haversine-estimated pairs, before or after the change, are rebuilt in
+     * full, since an estimate says
+     * nothing about the paths through it, and so are asymmetric ones (one-way
+     * roads or a time slice in use), since the repair assumes d(i, j) =
+     * d(j, i). Cached time-slice matrices are dropped either way.
+     */
+    private void updateDistances(int u, int v, double oldW, double newW) {
+        double[] d = distanceMatrix;
+        sliceMatrices = null;
+        if (asymmetric || activeSlice != null || hasOneWayEdges()
+                || !isGraphConnected(u, v, oldW) || !isGraphConnected(u, v, newW)) {
+            double[] before = d.clone();
+            buildDistanceMatrix();
+            markChanged(before);
+        } else if (newW < oldW) {
+            for (int i = 0; i < n; i++) {
+                double iu = d[i * n + u] + newW, iv = d[i * n + v] + newW;
+                for (int j = 0; j < n; j++) {
+                    if (i == j) continue;
+                    double via = Math.min(iu + d[v * n + j], iv + d[u * n + j]);
+                    if (via < d[i * n + j] - 1e-9) {
+                        d[i * n + j] = via;
+                        changed[i] = changed[j] = true;
                     }
                 }
             }
-            
-            // If no mandatory sequence applies, find nearest unvisited
-            if (next == null) {
-                double bestDist = Double.POSITIVE_INFINITY;
-                for (String candidate : allDistricts) {
-                    if (!visited.contains(candidate)) {
-                        double dist = getDistance(current, candidate);
-                        if (dist < bestDist) {
-                            bestDist = dist;
-                            next = candidate;
-                        }
+        } else if (newW > oldW) {
+            boolean[] affected = new boolean[n];
+            for (int i = 0; i < n; i++) {
+                double iu = d[i * n + u] + oldW, iv = d[i * n + v] + oldW;
+                for (int j = 0; j < n && !affected[i]; j++) {
+                    double dij = d[i * n + j];
+                    if (i != j && (Math.abs(iu + d[v * n + j] - dij) < 1e-9 || Math.abs(iv + d[u * n + j] - dij) < 1e-9)) {
+                        affected[i] = true;
                     }
                 }
             }
-            
-            if (next == null) break;
-            tour.add(next);
-            visited.add(next);
-            current = next;
+            Adjacency adj = buildAdjacency();
+            double[] before = d.clone();
+            IntStream.range(0, n).parallel().filter(i -> affected[i]).forEach(source -> {
+                int row = source * n;
+                shortestPathsFrom(source, adj.offsets, adj.targets, adj.weights, d, row);
+                String a = allDistricts.get(source);
+                for (int j = 0; j < n; j++) {
+                    if (j != source && d[row + j] == Double.POSITIVE_INFINITY) {
+                        d[row + j] = calculateHaversineDistance(a, allDistricts.get(j));
+                    }
+                }
+            });
+            // Keep the matrix symmetric for the columns of the recomputed rows
+            for (int i = 0; i < n; i++) {
+                if (!affected[i]) continue;
+                for (int j = 0; j < n; j++) d[j * n + i] = d[i * n + j];
+            }
+            markChanged(before);
         }
-        
-        // Close the tour
-        tour.add(start);
-        return tour;
+        assert distancesOverlaid || repairError() <= 1e-9 : "Repaired distances differ from a full rebuild";
+        asymmetric = detectAsymmetry();
+        buildNeighborLists();
     }
 
     /**
-     * Calculate total tour distance
+     * Largest difference, relative to the distance, between the matrix and
+     * one built from scratch from the current roads. Zero up to rounding
+     * after any incremental repair; checked by updateDistances when
+     * assertions are enabled (java -ea).
      */
-    public double calculateTourDistance(List<String> tour) {
-        if (tour == null || tour.size() < 2) return Double.POSITIVE_INFINITY;
+    double repairError() {
+        double[] fresh = shortestPathMatrix(activeSlice);
+        double worst = 0.0;
+        for (int k = 0; k < fresh.length; k++) {
+            worst = Math.max(worst, Math.abs(fresh[k] - distanceMatrix[k]) / Math.max(1.0, fresh[k]));
+        }
+        return worst;
+    }
+
+    private boolean hasOneWayEdges() {
+        for (int e = 0; e < edgeCount; e++) {
+            if (edgeOneWay[e]) return true;
+        }
+        return false;
+    }
+
+    // Whether some pair's distance depends on the direction of travel (beyond rounding of path sums)
+    private boolean detectAsymmetry() {
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                double ij = distanceMatrix[i * n + j], ji = distanceMatrix[j * n + i];
+                if (Math.abs(ij - ji) > 1e-9 * Math.max(1.0, Math.abs(ij))) return true;
+            }
+        }
+        return false;
+    }
+
+    // Whether distances differ by direction, see detectAsymmetry
+    public boolean isAsymmetric() {
+        return asymmetric;
+    }
+
+    private void markChanged(double[] before) {
+        for (int k = 0; k < before.length; k++) {
+            if (before[k] != distanceMatrix[k]) changed[k / n] = changed[k % n] = true;
+        }
+    }
+
+    /**
+     * Whether the road graph connects every district when road u-v has weight
+     * w (infinity = absent), whatever roads between u and v it holds now;
+     * called with the old and the new weight, it checks the graph before and
+     * after the change.
+     */
+    private boolean isGraphConnected(int u, int v, double w) {
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) parent[i] = i;
+        int components = n;
+        for (int e = 0; e < edgeCount; e++) {
+            if ((edgeFrom[e] == u && edgeTo[e] == v) || (edgeFrom[e] == v && edgeTo[e] == u)) continue;
+            int a = find(parent, edgeFrom[e]), b = find(parent, edgeTo[e]);
+            if (a != b) {
+                parent[a] = b;
+                components--;
+            }
+        }
+        if (w != Double.POSITIVE_INFINITY && find(parent, u) != find(parent, v)) components--;
+        return components == 1;
+    }
+
+    // Connected component of each district in the road graph (equal labels = a road path exists)
+    int[] roadComponents() {
+        if (network != null) {
+            int[] all = network.roadComponents(), labels = new int[n];
+            for (int i = 0; i < n; i++) labels[i] = all[networkId[i]];
+            return labels;
+        }
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) parent[i] = i;
+        for (int e = 0; e < edgeCount; e++) {
+            int a = find(parent, edgeFrom[e]), b = find(parent, edgeTo[e]);
+            if (a != b) parent[a] = b;
+        }
+        for (int i = 0; i < n; i++) parent[i] = find(parent, i);
+        return parent;
+    }
+
+    // Unordered district pairs with no road path between them
+    private long disconnectedPairs() {
+        if (network != null) return network.disconnectedPairs(networkId);
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) parent[i] = i;
+        for (int e = 0; e < edgeCount; e++) {
+            int a = find(parent, edgeFrom[e]), b = find(parent, edgeTo[e]);
+            if (a != b) parent[a] = b;
+        }
+        long[] size = new long[n];
+        for (int i = 0; i < n; i++) size[find(parent, i)]++;
+        long connected = 0;
+        for (long c : size) connected += c * (c - 1) / 2;
+        return (long) n * (n - 1) / 2 - connected;
+    }
+
+    // Pairs among the given districts with no road path between them
+    private long disconnectedPairs(int[] ids) {
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) parent[i] = i;
+        for (int e = 0; e < edgeCount; e++) {
+            int a = find(parent, edgeFrom[e]), b = find(parent, edgeTo[e]);
+            if (a != b) parent[a] = b;
+        }
+        long pairs = 0;
+        for (int i = 0; i < ids.length; i++) {
+            for (int j = i + 1; j < ids.length; j++) {
+                if (find(parent, ids[i]) != find(parent, ids[j])) pairs++;
+            }
+        }
+        return pairs;
+    }
+
+    static int find(int[] parent, int i) {
+        while (parent[i] != i) i = parent[i] = parent[parent[i]];
+        return i;
+    }
+
+    /**
+     * Highway graph in compressed rows: the roads leaving district i end at
+     * targets[offsets[i] .. offsets[i + 1] - 1]. A two-way edge gives a road
+     * each way, a one-way edge one road; roads in the same direction keep
+     * the weight of the edge added last.
+     */
+    static class Adjacency {
+        final int[] offsets, targets;
+        final double[] weights;
+        final long[] unique; // deduplicated roads as (from * n + to) << 24 | edge index, sorted
+
+        Adjacency(int[] offsets, int[] targets, double[] weights, long[] unique) {
+            this.offsets = offsets;
+            this.targets = targets;
+            this.weights = weights;
+            this.unique = unique;
+        }
+    }
+
+    private Adjacency buildAdjacency() {
+        if (edgeCount >= 1 << 24) throw new IllegalStateException("Too many edges: " + edgeCount);
+        long[] keys = new long[2 * edgeCount];
+        int arcs = 0;
+        for (int e = 0; e < edgeCount; e++) {
+            keys[arcs++] = ((long) edgeFrom[e] * n + edgeTo[e]) << 24 | e;
+            if (!edgeOneWay[e]) keys[arcs++] = ((long) edgeTo[e] * n + edgeFrom[e]) << 24 | e;
+        }
+        keys = Arrays.copyOf(keys, arcs);
+        Arrays.sort(keys);
+        int count = 0;
+        for (int k = 0; k < keys.length; k++) {
+            if (k + 1 < keys.length && keys[k + 1] >>> 24 == keys[k] >>> 24) continue; // keep the last
+            keys[count++] = keys[k];
+        }
+        long[] unique = Arrays.copyOf(keys, count);
+
+        // Sorted by (from, to), so each row fills in order
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[count];
+        double[] weights = new double[count];
+        for (int k = 0; k < count; k++) {
+            long pair = unique[k] >>> 24;
+            offsets[(int) (pair / n) + 1]++;
+            targets[k] = (int) (pair % n);
+            weights[k] = edgeWeight[(int) (unique[k] & 0xFFFFFF)];
+        }
+        for (int i = 0; i < n; i++) offsets[i + 1] += offsets[i];
+        return new Adjacency(offsets, targets, weights, unique);
+    }
+
+    // 64-bit hash of the districts, coordinates and edges the matrix is built from
+    long networkFingerprint() {
+        long h = 1125899906842597L;
+        for (String d : allDistricts) {
+            h = 31 * h + d.hashCode();
+            DistrictCoords c = coordinates.get(d);
+            if (c != null) {
+                h = 31 * h + Double.doubleToLongBits(c.lat);
+                h = 31 * h + Double.doubleToLongBits(c.lon);
+            }
+        }
+        for (long key : buildAdjacency().unique) {
+            h = 31 * h + (key >>> 24);
+            h = 31 * h + Double.doubleToLongBits(edgeWeight[(int) (key & 0xFFFFFF)]);
+        }
+        return h;
+    }
+
+    // Dijkstra with a lazy binary heap of (distance, district) entries
+    private void shortestPathsFrom(int source, int[] offsets, int[] targets, double[] weights,
+                                   double[] dist, int row) {
+        Arrays.fill(dist, row, row + n, Double.POSITIVE_INFINITY);
+        dist[row + source] = 0.0;
+        double[] heapKey = new double[targets.length + 1];
+        int[] heapNode = new int[targets.length + 1];
+        int size = 0;
+        heapKey[size] = 0.0;
+        heapNode[size++] = source;
+
+        while (size > 0) {
+            double d = heapKey[0];
+            int u = heapNode[0];
+            size--;
+            // Sift the last entry down from the root
+            double key = heapKey[size];
+            int node = heapNode[size];
+            int k = 0;
+            while (true) {
+                int c = 2 * k + 1;
+                if (c >= size) break;
+                if (c + 1 < size && heapKey[c + 1] < heapKey[c]) c++;
+                if (heapKey[c] >= key) break;
+                heapKey[k] = heapKey[c];
+                heapNode[k] = heapNode[c];
+                k = c;
+            }
+            heapKey[k] = key;
+            heapNode[k] = node;
+
+            if (d > dist[row + u]) continue; // stale entry
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int v = targets[e];
+                double nd = d + weights[e];
+                if (nd < dist[row + v]) {
+                    dist[row + v] = nd;
+                    // Sift the new entry up
+                    int h = size++;
+                    while (h > 0) {
+                        int parent = (h - 1) / 2;
+                        if (heapKey[parent] <= nd) break;
+                        heapKey[h] = heapKey[parent];
+                        heapNode[h] = heapNode[parent];
+                        h = parent;
+                    }
+                    heapKey[h] = nd;
+                    heapNode[h] = v;
+                }
+            }
+        }
+    }
+
+    private void buildNeighborLists() {
+        int k = Math.min(NEIGHBOR_LIST_SIZE, n - 1);
+        neighbors = new int[n][];
+        Integer[] order = new Integer[n];
+        for (int a = 0; a < n; a++) {
+            for (int c = 0; c < n; c++) order[c] = c;
+            final int from = a;
+            Arrays.sort(order, (x, y) -> Double.compare(distance(from, x), distance(from, y)));
+            neighbors[a] = new int[k];
+            int size = 0;
+            for (int c = 0; c < n && size < k; c++) {
+                if (order[c] != a) neighbors[a][size++] = order[c];
+            }
+        }
+        roadRatio = Double.NaN;
+    }
+
+    /**
+     * Overlay distances from an external provider (e.g. the Distance Matrix
+     * API) onto the matrix with one all-pairs request, which the provider
+     * is expected to batch. Pairs it cannot answer keep their road-graph or
+     * Haversine distance. Candidate lists are rebuilt afterwards.
+     */
+    public void applyDistances(DistanceProvider provider) {
+        double[] fetched = provider.distances(allDistricts, allDistricts).join();
+        for (int k = 0; k < fetched.length; k++) {
+            if (k / n != k % n && !Double.isNaN(fetched[k])) distanceMatrix[k] = fetched[k];
+        }
+        distancesOverlaid = true;
+        asymmetric = detectAsymmetry();
+        buildNeighborLists();
+    }
+
+    /**
+     * One-way roads that hold during part of the day, e.g. ferry crossings
+     * or peak-hour exits out of Dhaka: from startMinute (inclusive) to
+     * endMinute (exclusive), in minutes since midnight, wrapping past
+     * midnight if endMinute < startMinute. A slice's roads are added to the
+     * road graph, replacing roads in the same direction.
+     */
+    static final class TimeSlice {
+        final int startMinute, endMinute;
+        private final List<String> from = new ArrayList<>(), to = new ArrayList<>();
+        private final List<Double> km = new ArrayList<>();
+
+        TimeSlice(int startMinute, int endMinute) {
+            if (startMinute < 0 || startMinute >= MINUTES_PER_DAY || endMinute < 0 || endMinute >= MINUTES_PER_DAY
+                    || startMinute == endMinute) {
+                throw new IllegalArgumentException("Invalid time slice " + startMinute + "-" + endMinute);
+            }
+            this.startMinute = startMinute;
+            this.endMinute = endMinute;
+        }
+
+        TimeSlice road(String fromDistrict, String toDistrict, double distance) {
+            if (!(distance >= 0) || Double.isInfinite(distance)) {
+                throw new IllegalArgumentException("Invalid distance " + distance + " for " + fromDistrict + " -> " + toDistrict);
+            }
+            from.add(fromDistrict);
+            to.add(toDistrict);
+            km.add(distance);
+            return this;
+        }
+
+        int size() {
+            return km.size();
+        }
+
+        boolean covers(int minute) {
+            return startMinute < endMinute
+                    ? minute >= startMinute && minute < endMinute
+                    : minute >= startMinute || minute < endMinute;
+        }
+
+        private boolean overlaps(TimeSlice other) {
+            return covers(other.startMinute) || other.covers(startMinute);
+        }
+    }
+
+    static final int MINUTES_PER_DAY = 24 * 60;
+
+    /**
+     * Register a time slice, whose roads are fixed from then on; slices may
+     * not overlap. Takes effect for timeDependentDistance at once, and for
+     * the solvers after useTimeSlice.
+     */
+    public void addTimeSlice(TimeSlice slice) {
+        requireNetwork();
+        for (int k = 0; k < slice.size(); k++) {
+            idOf(slice.from.get(k));
+            idOf(slice.to.get(k));
+        }
+        for (TimeSlice other : timeSlices) {
+            if (slice.overlaps(other)) {
+                throw new IllegalArgumentException("Time slice " + slice.startMinute + "-" + slice.endMinute
+                        + " overlaps " + other.startMinute + "-" + other.endMinute);
+            }
+        }
+        timeSlices.add(slice);
+        timeSlices.sort(Comparator.comparingInt(t -> t.startMinute));
+        sliceMatrices = null;
+    }
+
+    // The slice covering the minute (mod one day), or null if none does
+    private TimeSlice sliceAt(double minute) {
+        int m = (int) Math.floorMod((long) Math.floor(minute), (long) MINUTES_PER_DAY);
+        for (TimeSlice slice : timeSlices) {
+            if (slice.covers(m)) return slice;
+        }
+        return null;
+    }
+
+    /**
+     * Solve against the roads in force at the given minute of the day: the
+     * road graph plus the covering slice, if any. The matrix is rebuilt
+     * from the road graph (overlays from applyDistances are dropped) and
+     * districts whose distances changed are marked for reoptimize(). Not
+     * safe while a search is running on this instance.
+     */
+    public void useTimeSlice(int minute) {
+        requireNetwork();
+        TimeSlice slice = sliceAt(minute);
+        if (slice == activeSlice) return;
+        double[] before = distanceMatrix;
+        activeSlice = slice;
+        distanceMatrix = sliceMatrix(slice).clone();
+        distancesOverlaid = false;
+        markChanged(before);
+        asymmetric = detectAsymmetry();
+        buildNeighborLists();
+    }
+
+    // Cached road-graph matrix with the slice's roads; rebuilt after roads or slices change
+    private double[] sliceMatrix(TimeSlice slice) {
+        double[][] cache = sliceMatrices;
+        if (cache == null) {
+            cache = new double[timeSlices.size() + 1][];
+            sliceMatrices = cache;
+        }
+        int k = slice == null ? 0 : timeSlices.indexOf(slice) + 1;
+        if (cache[k] == null) cache[k] = shortestPathMatrix(slice);
+        return cache[k];
+    }
+
+    /**
+     * Length of a tour leaving its first district at departureMinute, each
+     * leg priced with the roads in force when it starts (legs in the slice
+     * in use are priced from the current matrix). The clock follows
+     * the time windows (travel speeds, service and waiting) if set, else
+     * travel at TimeWindows.DEFAULT_ROAD_SPEED_KMH. Call from the thread
+     * that configures the solver; slice matrices are built on first use.
+     */
+    public double timeDependentDistance(Tour tour, double departureMinute) {
+        TimeWindows windows = timeWindows;
+        int[] city = tour.city;
+        int m = city.length;
+        double clock = windows != null ? windows.departAfterService(city[0], departureMinute) : departureMinute;
         double total = 0.0;
-        for (int i = 0; i < tour.size() - 1; i++) {
-            total += getDistance(tour.get(i), tour.get(i + 1));
+        for (int p = 0; p < m; p++) {
+            int a = city[p], b = city[p + 1 == m ? 0 : p + 1];
+            TimeSlice slice = sliceAt(clock);
+            double km = slice == activeSlice ? distance(a, b) : sliceMatrix(slice)[a * n + b];
+            total += km;
+            if (windows == null) {
+                clock += km * 60.0 / TimeWindows.DEFAULT_ROAD_SPEED_KMH;
+            } else {
+                clock += windows.travelMinutes(a, b, km);
+                if (p + 1 < m) clock = windows.departAfterService(b, clock);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Distance between two districts by id (allocation-free)
+     */
+    public double distance(int a, int b) {
+        return distanceMatrix[a * n + b];
+    }
+
+    int idOf(String district) {
+        Integer id = districtIndex.get(district);
+        if (id == null) throw new IllegalArgumentException("Unknown district: " + district);
+        return id;
+    }
+
+    /**
+     * Get distance between two districts
+     */
+    public double getDistance(String a, String b) {
+        return distance(idOf(a), idOf(b));
+    }
+
+    /**
+     * Map the configured mandatory sequences to district ids
+     */
+    private void buildSequenceIds() {
+        sequenceIds = new int[mandatorySequences.size()][];
+        sequenceRank = new int[sequenceIds.length][n];
+        for (int s = 0; s < sequenceIds.length; s++) {
+            List<String> sequence = mandatorySequences.get(s);
+            sequenceIds[s] = new int[sequence.size()];
+            Arrays.fill(sequenceRank[s], -1);
+            for (int k = 0; k < sequence.size(); k++) {
+                sequenceIds[s][k] = idOf(sequence.get(k));
+                sequenceRank[s][sequenceIds[s][k]] = k;
+            }
+        }
+        nearestIndex = new NearestNeighborBuilder.Index(allDistricts, coordinates, sequenceIds);
+    }
+
+    NearestNeighborBuilder.Index spatialIndex() {
+        return nearestIndex;
+    }
+
+    // Computed on first use after the matrix changes; racing threads compute the same value
+    double roadRatio() {
+        double ratio = roadRatio;
+        if (Double.isNaN(ratio)) roadRatio = ratio = NearestNeighborBuilder.roadRatio(nearestIndex, this);
+        return ratio;
+    }
+
+    int[][] sequenceIds() {
+        return sequenceIds;
+    }
+
+    /**
+     * Improved Nearest Neighbor with mandatory sequences enforced, see
+     * NearestNeighborBuilder. Only the returned tour is allocated.
+     */
+    public Tour nearestNeighborFrom(int start) {
+        NearestNeighborBuilder builder = nearestBuilders.get();
+        if (builder == null || builder.index() != nearestIndex) {
+            builder = new NearestNeighborBuilder(nearestIndex);
+            nearestBuilders.set(builder);
+        }
+        return builder.build(this, start);
+    }
+
+    /**
+     * Initial tour from the given heuristic, not yet rotated or in sequence
+     * order. variant diversifies restarts: the start district for nearest
+     * neighbor and the tree root for the double tree, see TourConstruction
+     * for the others. MIXED cycles through the four by variant.
+     */
+    public Tour construct(Construction heuristic, int variant) {
+        if (heuristic == Construction.MIXED) heuristic = Construction.values()[variant % 4];
+        switch (heuristic) {
+            case GREEDY_EDGE:
+                return new TourConstruction(this).greedyEdge(variant);
+            case SPACE_FILLING_CURVE:
+                return new TourConstruction(this).hilbertCurve(variant);
+            case DOUBLE_TREE:
+                return new TourConstruction(this).doubleTree(variant % n);
+            case NEAREST_NEIGHBOR:
+            default:
+                return nearestNeighborFrom(variant % n);
+        }
+    }
+
+    public void setConstruction(Construction construction) {
+        this.construction = Objects.requireNonNull(construction);
+    }
+
+    // Threads one search may use: multi-start and memetic workers, annealing and branch-and-bound threads
+    void setWorkers(int workers) {
+        if (workers < 1) throw new IllegalArgumentException("workers must be >= 1");
+        this.workers = workers;
+    }
+
+    int workers() {
+        return workers;
+    }
+
+    /**
+     * Service times and opening windows for twoOptImprove and localSearch
+     * (and so for multi-start restarts and reoptimize): a move is only
+     * applied if it does not add time warp, so a tour that meets its
+     * windows keeps meeting them. The other engines' own moves ignore them.
+     * Restarts and anytime runs rank tours by time warp first, then by
+     * distance, so a shorter tour that is late never beats one on time.
+     * null switches the check off.
+     */
+    public void setTimeWindows(TimeWindows windows) {
+        if (windows != null && windows.owner() != this) {
+            throw new IllegalArgumentException("Time windows belong to another solver");
+        }
+        timeWindows = windows;
+    }
+
+    // Time warp of a tour under the current time windows, 0 if none are set
+    private double timeWarp(Tour tour) {
+        TimeWindows windows = timeWindows;
+        return windows == null ? 0.0 : windows.simulate(tour).timeWarp;
+    }
+
+    // Ranking of tours: less time warp first (beyond rounding), then shorter
+    static boolean isBetterTour(double warp, double distance, double otherWarp, double otherDistance) {
+        if (Math.abs(warp - otherWarp) > TimeWindows.EPS) return warp < otherWarp;
+        return distance < otherDistance;
+    }
+
+    // Timetable of a tour under the current time windows, or null if none are set
+    public TimeWindows.Schedule schedule(Tour tour) {
+        TimeWindows windows = timeWindows;
+        return windows == null ? null : windows.simulate(tour);
+    }
+
+    /**
+     * Reorder the districts of each mandatory sequence in place so they appear
+     * in sequence order when the tour is read from position 0. Each sequence
+     * keeps the positions its districts already occupy. Local search moves
+     * preserve this order, so the final tour honours every sequence.
+     */
+    public void enforceMandatorySequences(Tour tour) {
+        for (int[] sequence : sequenceIds) {
+            int[] slots = new int[sequence.length];
+            int count = 0;
+            for (int d : sequence) {
+                if (tour.pos[d] >= 0) slots[count++] = tour.pos[d];
+            }
+            Arrays.sort(slots, 0, count);
+            int k = 0;
+            for (int d : sequence) {
+                if (tour.pos[d] < 0) continue;
+                tour.city[slots[k]] = d;
+                tour.pos[d] = slots[k++];
+            }
+        }
+    }
+
+    /**
+     * Calculate total tour distance (including the closing edge)
+     */
+    public double calculateTourDistance(Tour tour) {
+        if (tour == null || tour.size() < 2) return Double.POSITIVE_INFINITY;
+        int[] city = tour.city;
+        double total = distance(city[city.length - 1], city[0]);
+        for (int i = 0; i < city.length - 1; i++) {
+            total += distance(city[i], city[i + 1]);
         }
         return total;
     }
 
     
-    //  2-Opt improvement
+    //  2-Opt improvement over neighbor lists with don't-look bits.
+    //  Position 0 stays fixed; only moves whose new edge is shorter than the
+    //  removed one are evaluated.
      
-    public List<String> twoOptImprove(List<String> tour) {
+    public Tour twoOptImprove(Tour tour) {
+        return improve(tour, false, null);
+    }
+
+    /**
+     * Local search combining 2-opt with Or-opt segment insertion (segments of
+     * 1-3 districts, reinserted in either orientation; the reversed case is
+     * the restricted 3-opt move)
+     */
+    public Tour localSearch(Tour tour) {
+        return improve(tour, true, null);
+    }
+
+    // seeds: districts whose don't-look bits start off in the first pass (null = all)
+    private Tour improve(Tour tour, boolean withOrOpt, int[] seeds) {
         if (tour == null || tour.size() < 4) return tour;
-        List<String> best = new ArrayList<>(tour);
+        long t0 = System.nanoTime();
+        SolverStats.Moves moves = new SolverStats.Moves();
+        Tour best = new Tour(tour);
+        int[] city = best.city;
+        SequenceGuard guard = new SequenceGuard(sequenceRank, best);
+        TimeWindows windows = timeWindows;
+        TimeWindows.Evaluator timing = windows == null ? null : windows.evaluator(best);
+        ArcSums arcs = asymmetric ? new ArcSums(best) : null;
+
+        // Work queue of districts whose don't-look bit is off
+        int[] queue = new int[n];
+        boolean[] queued = new boolean[n];
         boolean improved = true;
-        
+
+        // Mandatory sequences can make a move feasible only after other moves,
+        // so keep sweeping until a full pass over every district finds nothing
         while (improved) {
             improved = false;
-            int n = best.size();
-            
-            for (int i = 1; i < n - 2; i++) {
-                for (int j = i + 1; j < n - 1; j++) {
-                    // Check if this swap would break mandatory sequences
-                    if (wouldBreakMandatorySequence(best, i, j)) {
-                        continue;
-                    }
-                    
-                    String A = best.get(i - 1);
-                    String B = best.get(i);
-                    String C = best.get(j);
-                    String D = best.get(j + 1);
-                    
-                    double currentDist = getDistance(A, B) + getDistance(C, D);
-                    double newDist = getDistance(A, C) + getDistance(B, D);
-                    
-                    if (newDist < currentDist - 0.001) {
-                        reverseSubList(best, i, j);
-                        improved = true;
+            int head = 0, count = 0;
+            for (int d : seeds != null ? seeds : city) {
+                if (queued[d]) continue;
+                queue[count++] = d;
+                queued[d] = true;
+            }
+            seeds = null;
+
+            while (count > 0) {
+                int a = queue[head];
+                head = head + 1 == n ? 0 : head + 1;
+                count--;
+                queued[a] = false;
+
+                int[] touched = improveAround(best, guard, timing, arcs, moves, a);
+                if (touched == null && withOrOpt) touched = orOptAround(best, guard, timing, arcs, moves, a);
+                if (touched == null) continue;
+                improved = true;
+                for (int d : touched) {
+                    if (!queued[d]) {
+                        queue[(head + count) % n] = d;
+                        count++;
+                        queued[d] = true;
                     }
                 }
             }
         }
+        SolverStats run = stats;
+        run.add(moves);
+        run.improvementNanos.add(System.nanoTime() - t0);
         return best;
     }
-    
+
     /**
-     * Check if reversing tour[i...j] would break any mandatory sequence
+     * Apply the best feasible improving 2-opt move that adds an edge at district a,
+     * adding no time warp if timing is given. On an asymmetric matrix (arcs
+     * given) the reversed path is priced in both directions. Returns the four
+     * endpoints of the changed edges, or null if none found.
      */
-    private boolean wouldBreakMandatorySequence(List<String> tour, int i, int j) {
-        for (List<String> sequence : mandatorySequences) {
-            // Find all positions of sequence districts in the tour segment
-            List<Integer> positions = new ArrayList<>();
-            for (int k = i; k <= j; k++) {
-                if (sequence.contains(tour.get(k))) {
-                    positions.add(k);
+    private int[] improveAround(Tour tour, SequenceGuard guard, TimeWindows.Evaluator timing, ArcSums arcs,
+                                SolverStats.Moves moves, int a) {
+        double bestDelta = -0.001;
+        int bestX = -1, bestY = -1;
+        int[] touched = null;
+        for (int dir = 0; dir < 2; dir++) {
+            int b = dir == 0 ? tour.next(a) : tour.prev(a);
+            double removed = distance(a, b);
+            for (int c : neighbors[a]) {
+                double added = distance(a, c);
+                if (added >= removed) break; // sorted: no later candidate can gain
+                if (tour.pos[c] < 0 || c == b) continue;
+                int d = dir == 0 ? tour.next(c) : tour.prev(c);
+                if (d == a) continue;
+
+                // Express as a successor move: new edges (x, y) and (succ x, succ y)
+                int x = dir == 0 ? a : b;
+                int y = dir == 0 ? c : d;
+                double delta = arcs == null
+                        ? added + distance(b, d) - removed - distance(c, d)
+                        : twoOptDelta(tour, arcs, x, y);
+                moves.twoOptEvaluated++;
+                if (delta < bestDelta) {
+                    if (!isFeasibleTwoOpt(tour, guard, x, y)) {
+                        moves.sequenceRejected++;
+                        continue;
+                    }
+                    if (timing != null && !meetsTimeWindows(tour, timing, x, y)) {
+                        moves.timeWindowRejected++;
+                        continue;
+                    }
+                    bestDelta = delta;
+                    bestX = x;
+                    bestY = y;
+                    touched = new int[] {a, b, c, d};
                 }
             }
-            
-            // If we have 2+ districts from a sequence in the segment
-            if (positions.size() >= 2) {
-                // Check if they're in the correct order
-                for (int p = 0; p < positions.size() - 1; p++) {
-                    String current = tour.get(positions.get(p));
-                    String next = tour.get(positions.get(p + 1));
-                    
-                    int currentIdx = sequence.indexOf(current);
-                    int nextIdx = sequence.indexOf(next);
-                    
-                    // They must appear in increasing order in the sequence
-                    if (currentIdx >= nextIdx) {
-                        return true; // Would break the sequence
+        }
+        if (touched == null) return null;
+        applyTwoOpt(tour, bestX, bestY);
+        guard.rebuild();
+        if (timing != null) timing.rebuild();
+        if (arcs != null) arcs.rebuild();
+        moves.twoOptApplied++;
+        return touched;
+    }
+
+    /**
+     * Replace edges (x, succ x) and (y, succ y) with (x, y) and (succ x, succ y),
+     * reversing whichever path does not contain position 0.
+     */
+    private void applyTwoOpt(Tour tour, int x, int y) {
+        int px = tour.pos[x], py = tour.pos[y];
+        if (px < py) tour.reverse(px + 1, py);
+        else tour.reverse(py + 1, px);
+    }
+
+    // Exact change in length of applyTwoOpt(tour, x, y), for any matrix
+    private double twoOptDelta(Tour tour, ArcSums arcs, int x, int y) {
+        int px = tour.pos[x], py = tour.pos[y];
+        int sx = tour.next(x), sy = tour.next(y);
+        double removed = distance(x, sx) + distance(y, sy);
+        return px < py
+                ? distance(x, y) + distance(sx, sy) - removed + arcs.reversal(px + 1, py)
+                : distance(y, x) + distance(sy, sx) - removed + arcs.reversal(py + 1, px);
+    }
+
+    /**
+     * Prefix sums of a tour's arc lengths walked forwards and backwards, so
+     * that on an asymmetric matrix the cost of reversing any stretch is
+     * O(1) rather than a walk over it. Rebuilt in O(n) after each applied
+     * move, like the SequenceGuard.
+     */
+    private final class ArcSums {
+        private final Tour tour;
+        private final double[] forward, backward; // arcs between positions 0..p, each way
+
+        ArcSums(Tour tour) {
+            this.tour = tour;
+            this.forward = new double[tour.size()];
+            this.backward = new double[tour.size()];
+            rebuild();
+        }
+
+        void rebuild() {
+            int[] city = tour.city;
+            for (int p = 0; p + 1 < city.length; p++) {
+                forward[p + 1] = forward[p] + distance(city[p], city[p + 1]);
+                backward[p + 1] = backward[p] + distance(city[p + 1], city[p]);
+            }
+        }
+
+        // Change in length of the arcs inside positions i..j when they are walked in reverse
+        double reversal(int i, int j) {
+            return (backward[j] - backward[i]) - (forward[j] - forward[i]);
+        }
+    }
+
+    /**
+     * Apply the best feasible improving Or-opt move for a segment that starts
+     * or ends at district a and is reinserted next to one of a's neighbors.
+     * Returns the endpoints of the changed edges, or null if none found.
+     */
+    int[] orOptAround(Tour tour, SequenceGuard guard, SolverStats.Moves moves, int a) {
+        return orOptAround(tour, guard, null, null, moves, a);
+    }
+
+    private int[] orOptAround(Tour tour, SequenceGuard guard, TimeWindows.Evaluator timing, ArcSums arcs,
+                              SolverStats.Moves moves, int a) {
+        int[] city = tour.city;
+        int m = city.length;
+        int pa = tour.pos[a];
+        double bestDelta = -0.001;
+        int bestI = -1, bestJ = -1, bestK = -1;
+        boolean bestReversed = false;
+
+        for (int len = 1; len <= OR_OPT_MAX_SEGMENT; len++) {
+            for (int end = 0; end < 2; end++) {
+                // end 0: a is the first district of the segment, end 1: the last
+                int i = end == 0 ? pa : pa - len + 1;
+                int j = i + len - 1;
+                if (i < 1 || j >= m - 1) continue; // never move position 0
+                int prev = city[i - 1], first = city[i], last = city[j], next = city[j + 1];
+                double removed = distance(prev, first) + distance(last, next) - distance(prev, next);
+
+                for (int c : neighbors[a]) {
+                    double added = distance(a, c);
+                    if (added >= removed) break;
+                    int pc = tour.pos[c];
+                    if (pc < 0 || (pc >= i && pc <= j)) continue;
+
+                    for (int side = 0; side < 2; side++) {
+                        // side 0: insert between c and its successor, side 1: between its predecessor and c
+                        int k = side == 0 ? pc : (pc == 0 ? m - 1 : pc - 1);
+                        if (k >= i - 1 && k <= j) continue;
+                        boolean reversed = (side == 0) == (end == 1);
+                        int x = city[k], y = city[k + 1 == m ? 0 : k + 1];
+                        double inserted = reversed
+                                ? distance(x, last) + distance(first, y) + (arcs == null ? 0.0 : arcs.reversal(i, j))
+                                : distance(x, first) + distance(last, y);
+                        double delta = inserted - distance(x, y) - removed;
+                        moves.orOptEvaluated++;
+                        if (delta >= bestDelta) continue;
+                        if (!isFeasibleOrOpt(guard, i, j, k, reversed)) {
+                            moves.sequenceRejected++;
+                            continue;
+                        }
+                        if (timing != null && timing.orOptWarp(i, j, k, reversed) > timing.warp() + TimeWindows.EPS) {
+                            moves.timeWindowRejected++;
+                            continue;
+                        }
+                        bestDelta = delta;
+                        bestI = i;
+                        bestJ = j;
+                        bestK = k;
+                        bestReversed = reversed;
                     }
                 }
             }
         }
-        return false;
+        if (bestI < 0) return null;
+
+        int[] touched = {
+            city[bestI - 1], city[bestJ + 1], city[bestI], city[bestJ],
+            city[bestK], city[bestK + 1 == m ? 0 : bestK + 1]
+        };
+        tour.moveSegment(bestI, bestJ, bestK, bestReversed);
+        guard.rebuild();
+        if (timing != null) timing.rebuild();
+        if (arcs != null) arcs.rebuild();
+        moves.orOptApplied++;
+        return touched;
+    }
+
+    /**
+     * Moving tour[i...j] past the block between it and position k swaps the
+     * order of the segment and that block, so no sequence may have districts
+     * in both; a reversed reinsertion must also be a valid reversal.
+     */
+    private boolean isFeasibleOrOpt(SequenceGuard guard, int i, int j, int k, boolean reversed) {
+        int from = k > j ? j + 1 : k + 1;
+        int to = k > j ? k : i - 1;
+        if (guard.sharesSequence(i, j, from, to)) return false;
+        return !reversed || !guard.wouldBreakMandatorySequence(i, j);
+    }
+
+    // Whether the 2-opt move of applyTwoOpt(tour, x, y) adds no time warp
+    private boolean meetsTimeWindows(Tour tour, TimeWindows.Evaluator timing, int x, int y) {
+        int px = tour.pos[x], py = tour.pos[y];
+        return timing.twoOptWarp(Math.min(px, py) + 1, Math.max(px, py)) <= timing.warp() + TimeWindows.EPS;
     }
 
-    private void reverseSubList(List<String> list, int i, int j) {
-        while (i < j) {
-            Collections.swap(list, i, j);
-            i++; j--;
+    private boolean isFeasibleTwoOpt(Tour tour, SequenceGuard guard, int x, int y) {
+        int px = tour.pos[x], py = tour.pos[y];
+        int i = Math.min(px, py) + 1, j = Math.max(px, py);
+        return i < j && !guard.wouldBreakMandatorySequence(i, j);
+    }
+
+    /**
+     * Constraint index over one tour answering "would reversing tour[i...j]
+     * break a mandatory sequence?" in O(#sequences) without allocation.
+     * Reversing is rejected when two consecutive sequence districts inside
+     * the segment currently appear in increasing order, since the reversal
+     * puts them in decreasing order. (The list-based check this replaces had
+     * the comparison the other way round, so 2-opt could reverse a sequence
+     * that was in order and was kept from reversing one that was not.)
+     * Per sequence it keeps
+     * prefix counts of members and of such ascending pairs by position, plus
+     * the next member position; call rebuild() after the tour changes.
+     *
+     * Searches that apply most of the moves they check (annealing) would
+     * spend their time in rebuild(); they use the ...AtPositions variants,
+     * which read tour.pos in O(sequence length) and need no rebuild().
+     */
+    static class SequenceGuard {
+        private final int[][] rank;
+        private final int[][] sequences; // sequences[s][k] = district of rank k in s
+        private final Tour tour;
+        private final int[][] members;   // members[s][p] = members of s at positions < p
+        private final int[][] ascending; // ascending[s][p] = ascending pairs ending at positions < p
+        private final int[][] nextMember; // nextMember[s][p] = first member position >= p
+
+        SequenceGuard(int[][] rank, Tour tour) {
+            this.rank = rank;
+            this.tour = tour;
+            int m = tour.size();
+            members = new int[rank.length][m + 1];
+            ascending = new int[rank.length][m + 1];
+            nextMember = new int[rank.length][m + 1];
+            sequences = new int[rank.length][];
+            for (int s = 0; s < rank.length; s++) {
+                int size = 0;
+                for (int k : rank[s]) size = Math.max(size, k + 1);
+                sequences[s] = new int[size];
+                for (int d = 0; d < rank[s].length; d++) {
+                    if (rank[s][d] >= 0) sequences[s][rank[s][d]] = d;
+                }
+            }
+            rebuild();
+        }
+
+        void rebuild() {
+            int[] city = tour.city;
+            int m = city.length;
+            for (int s = 0; s < rank.length; s++) {
+                int[] r = rank[s], cnt = members[s], asc = ascending[s], next = nextMember[s];
+                int lastRank = -1;
+                for (int p = 0; p < m; p++) {
+                    int k = r[city[p]];
+                    boolean member = k >= 0;
+                    cnt[p + 1] = cnt[p] + (member ? 1 : 0);
+                    asc[p + 1] = asc[p] + (member && lastRank >= 0 && lastRank < k ? 1 : 0);
+                    if (member) lastRank = k;
+                }
+                next[m] = m;
+                for (int p = m - 1; p >= 0; p--) {
+                    next[p] = r[city[p]] >= 0 ? p : next[p + 1];
+                }
+            }
+        }
+
+        // True if some sequence has districts both in tour[i1...j1] and tour[i2...j2]
+        boolean sharesSequence(int i1, int j1, int i2, int j2) {
+            for (int s = 0; s < rank.length; s++) {
+                if (members[s][j1 + 1] - members[s][i1] > 0
+                        && members[s][j2 + 1] - members[s][i2] > 0) return true;
+            }
+            return false;
+        }
+
+        boolean wouldBreakMandatorySequence(int i, int j) {
+            for (int s = 0; s < rank.length; s++) {
+                if (members[s][j + 1] - members[s][i] < 2) continue;
+                // Count ascending pairs whose both ends lie inside the segment
+                int first = nextMember[s][i];
+                if (ascending[s][j + 1] - ascending[s][first + 1] > 0) return true;
+            }
+            return false;
+        }
+
+        // As sharesSequence, from the current positions
+        boolean sharesSequenceAtPositions(int i1, int j1, int i2, int j2) {
+            int[] pos = tour.pos;
+            for (int[] sequence : sequences) {
+                boolean first = false, second = false;
+                for (int d : sequence) {
+                    int p = pos[d];
+                    first |= p >= i1 && p <= j1;
+                    second |= p >= i2 && p <= j2;
+                }
+                if (first && second) return true;
+            }
+            return false;
+        }
+
+        /**
+         * As wouldBreakMandatorySequence, from the current positions: the
+         * segment has no ascending pair exactly when its members, taken in
+         * sequence order, sit at decreasing positions.
+         */
+        boolean wouldBreakMandatorySequenceAtPositions(int i, int j) {
+            int[] pos = tour.pos;
+            for (int[] sequence : sequences) {
+                int last = Integer.MAX_VALUE;
+                for (int d : sequence) {
+                    int p = pos[d];
+                    if (p < i || p > j) continue;
+                    if (p > last) return true;
+                    last = p;
+                }
+            }
+            return false;
         }
     }
 
+    /**
+     * One restart: a tour from the construction heuristic with variant
+     * startPoint (nearest neighbor by default), rotated to begin at start,
+     * with mandatory sequences in order, then 2-opt + Or-opt
+     */
+    Tour restartFrom(int startPoint, int start) {
+        long t0 = System.nanoTime();
+        Tour tour = construct(construction, startPoint);
+        tour.rotateTo(start);
+        enforceMandatorySequences(tour);
+        SolverStats run = stats;
+        run.constructionNanos.add(System.nanoTime() - t0);
+        tour = localSearch(tour);
+        run.restarts.increment();
+        return tour;
+    }
+
+    // calculateTourDistance, timed as the scoring phase and recorded in the best-distance trace
+    private double score(Tour tour) {
+        long t0 = System.nanoTime();
+        double dist = calculateTourDistance(tour);
+        SolverStats run = stats;
+        run.scoringNanos.add(System.nanoTime() - t0);
+        run.recordBest(dist);
+        return dist;
+    }
+
+    /**
+     * Metrics of the current or most recent run. Each call to solve,
+     * solveWithin, multiStartSearch, parallelMultiStartSearch or reoptimize
+     * starts a new SolverStats; runs overlapping on one instance share it.
+     */
+    public SolverStats stats() {
+        return stats;
+    }
+
+    private SolverStats newStats() {
+        long haversine = disconnectedPairs();
+        return new SolverStats(matrixFromSnapshot, matrixBuildNanos, (long) n * (n - 1) / 2 - haversine, haversine);
+    }
+
+    /**
+     * Re-optimize a previous result after setEdge/removeEdge or mandatory
+     * sequence changes. Starts from its tour with the sequences re-imposed,
+     * and runs 2-opt + Or-opt with only the districts touched by the changes
+     * queued, instead of searching from scratch.
+     */
+    public Result reoptimize(Result previous) {
+        stats = newStats();
+        Tour tour = new Tour(previous.tour);
+        enforceMandatorySequences(tour);
+        int count = 0;
+        int[] seeds = new int[tour.size()];
+        for (int d : tour.city) {
+            if (changed[d]) seeds[count++] = d;
+        }
+        Arrays.fill(changed, false);
+        tour = improve(tour, true, Arrays.copyOf(seeds, count));
+        return new Result(tour, score(tour));
+    }
+
     /**
      * Multi-start search with random initial tours
      */
     public Result multiStartSearch(int restarts) {
-        List<String> bestTour = null;
-        double bestDist = Double.POSITIVE_INFINITY;
+        stats = newStats();
+        Tour bestTour = null;
+        double bestDist = Double.POSITIVE_INFINITY, bestWarp = Double.POSITIVE_INFINITY;
+        int start = idOf(startDistrict);
 
         System.out.println("Progress: ");
         for (int r = 0; r < restarts; r++) {
             if (r % 20 == 0) System.out.print(".");
             
             // Try different starting points
-            String startPoint = allDistricts.get(rng.nextInt(allDistricts.size()));
-            List<String> tour = nearestNeighborFrom(startPoint);
-            
-            // Rotate tour to start from Dhaka
-            tour = rotateTourToStart(tour, startDistrict);
-            
-            // Apply 2-opt
-            tour = twoOptImprove(tour);
+            Tour tour = restartFrom(rng.nextInt(n), start);
             
-            double dist = calculateTourDistance(tour);
-            if (dist < bestDist) {
+            double dist = score(tour), warp = timeWarp(tour);
+            if (isBetterTour(warp, dist, bestWarp, bestDist)) {
                 bestDist = dist;
-                bestTour = new ArrayList<>(tour);
+                bestWarp = warp;
+                bestTour = new Tour(tour);
             }
         }
         System.out.println(" Done!");
@@ -668,30 +1977,352 @@ public class TSPBangladeshImproved {
     }
 
     /**
-     * Rotate tour to start from specified district
+     * Parallel multi-start search. Restarts are dealt round-robin to a fixed
+     * number of workers, each with its own SplittableRandom stream split from
+     * the seed, so the result is reproducible for a given seed and worker count.
+     * Nothing is printed; progress is stats().restarts.
      */
-    private List<String> rotateTourToStart(List<String> tour, String start) {
-        if (tour == null || tour.isEmpty()) return tour;
-        
-        int idx = tour.indexOf(start);
-        if (idx == -1 || idx == 0) return tour;
-        
-        List<String> rotated = new ArrayList<>();
-        for (int i = idx; i < tour.size() - 1; i++) {
-            rotated.add(tour.get(i));
+    public Result parallelMultiStartSearch(int restarts, int workers) {
+        if (workers < 1) throw new IllegalArgumentException("workers must be >= 1");
+        stats = newStats();
+        int start = idOf(startDistrict);
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] streams = new SplittableRandom[workers];
+        for (int w = 0; w < workers; w++) streams[w] = root.split();
+
+        AtomicReference<RestartResult> best = new AtomicReference<>();
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        List<Future<?>> futures = new ArrayList<>();
+
+        try {
+            for (int w = 0; w < workers; w++) {
+                final int worker = w;
+                futures.add(pool.submit(() -> {
+                    SplittableRandom random = streams[worker];
+                    RestartResult local = null;
+                    for (int r = worker; r < restarts; r += workers) {
+                        Tour tour = restartFrom(random.nextInt(n), start);
+
+                        RestartResult candidate = new RestartResult(tour, score(tour), timeWarp(tour), r);
+                        if (local == null || candidate.isBetterThan(local)) local = candidate;
+                    }
+                    if (local != null) best.accumulateAndGet(local, RestartResult::better);
+                }));
+            }
+            for (Future<?> f : futures) f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Search interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search worker failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        RestartResult winner = best.get();
+        if (winner == null) return new Result(null, Double.POSITIVE_INFINITY);
+        return new Result(winner.tour, winner.distance);
+    }
+
+    // Best tour of a single restart, ranked by isBetterTour; ties broken by restart index for reproducibility
+    private static class RestartResult {
+        final Tour tour;
+        final double distance;
+        final double warp;
+        final int restart;
+
+        RestartResult(Tour tour, double distance, double warp, int restart) {
+            this.tour = tour;
+            this.distance = distance;
+            this.warp = warp;
+            this.restart = restart;
+        }
+
+        boolean isBetterThan(RestartResult other) {
+            if (isBetterTour(warp, distance, other.warp, other.distance)) return true;
+            if (isBetterTour(other.warp, other.distance, warp, distance)) return false;
+            return restart < other.restart;
+        }
+
+        static RestartResult better(RestartResult a, RestartResult b) {
+            if (a == null) return b;
+            return b.isBetterThan(a) ? b : a;
+        }
+    }
+
+    // Available solver engines
+    enum Mode { MULTI_START, OR_LK, MEMETIC, ANNEALING, EXACT }
+
+    // Initial tour heuristics for restarts
+    enum Construction { NEAREST_NEIGHBOR, GREEDY_EDGE, SPACE_FILLING_CURVE, DOUBLE_TREE, MIXED }
+
+    /**
+     * Run the selected engine. effort is the restart count for MULTI_START,
+     * the kick count for OR_LK, the generation count for MEMETIC, the
+     * epoch count for ANNEALING and the branch-and-bound node count for
+     * EXACT. OR_LK and ANNEALING reject asymmetric distances.
+     */
+    public Result solve(Mode mode, int effort) {
+        requireSymmetricFor(mode);
+        stats = newStats();
+        switch (mode) {
+            case OR_LK:
+                return new OrLinKernighan(this).solve(effort, seed);
+            case MEMETIC:
+                return new MemeticSolver(this, MemeticSolver.DEFAULT_POPULATION, workers).solve(effort, seed);
+            case ANNEALING:
+                return new SimulatedAnnealing(this, SimulatedAnnealing.DEFAULT_CHAINS).solve(effort, seed);
+            case EXACT:
+                return new ExactSolver(this).solve(effort, seed).best;
+            case MULTI_START:
+            default:
+                return parallelMultiStartSearch(effort, workers);
+        }
+    }
+
+    /**
+     * Anytime solving: run the selected engine until the budget is exhausted
+     * and return the best tour found so far. The listener, if any, is called
+     * with each new best tour. A restart or kick in progress is allowed to
+     * finish, so the budget may be overrun by one iteration.
+     */
+    public Result solveWithin(Mode mode, Budget budget, ImprovementListener listener) {
+        requireSymmetricFor(mode);
+        stats = newStats();
+        BestTracker tracker = new BestTracker(listener, stats, timeWindows);
+        switch (mode) {
+            case OR_LK:
+                new OrLinKernighan(this).solve(budget, tracker, seed);
+                break;
+            case MEMETIC:
+                new MemeticSolver(this, MemeticSolver.DEFAULT_POPULATION, workers).solve(budget, tracker, seed);
+                break;
+            case ANNEALING:
+                new SimulatedAnnealing(this, SimulatedAnnealing.DEFAULT_CHAINS).solve(budget, tracker, seed);
+                break;
+            case EXACT:
+                new ExactSolver(this).solve(budget, tracker, seed);
+                break;
+            case MULTI_START:
+            default:
+                anytimeMultiStart(budget, tracker, workers);
+        }
+        return tracker.result();
+    }
+
+    /**
+     * Anytime solving in the background with the run's improvements and
+     * progress published as events, see SearchStream. Subscribe, then call
+     * start() on the returned stream.
+     */
+    public SearchStream solveStreaming(Mode mode, Budget budget, long progressMillis) {
+        return new SearchStream(this, mode, budget, progressMillis);
+    }
+
+    // OR_LK and ANNEALING price their moves as if d(i, j) = d(j, i)
+    private void requireSymmetricFor(Mode mode) {
+        if (asymmetric && (mode == Mode.OR_LK || mode == Mode.ANNEALING)) {
+            throw new UnsupportedOperationException(mode + " needs symmetric distances; use MULTI_START, MEMETIC or EXACT");
+        }
+    }
+
+    /**
+     * Routes for a fleet of vehicles instead of a single tour, restarting
+     * until the budget (counted in restarts) is exhausted, see VehicleRouting.
+     */
+    public VehicleRouting.Plan routeVehicles(List<VehicleRouting.Vehicle> fleet, Budget budget) {
+        stats = newStats();
+        return new VehicleRouting(this, fleet).solve(budget, seed);
+    }
+
+    /**
+     * Branch-and-bound until the budget (counted in nodes) is exhausted. The
+     * outcome says whether the tour was proven optimal and, if not, the
+     * lower bound reached; solve and solveWithin return only the tour.
+     */
+    public ExactSolver.Outcome solveExact(Budget budget) {
+        stats = newStats();
+        return new ExactSolver(this).solve(budget, null, seed);
+    }
+
+    /**
+     * Optimal tour through a subset of the districts (at most
+     * ExactSolver.HELD_KARP_MAX, the start included), by Held-Karp dynamic
+     * programming. Mandatory sequences apply to the districts of the subset.
+     */
+    public Result solveExactly(List<String> districts) {
+        return new ExactSolver(this).heldKarp(districts.stream().mapToInt(this::idOf).toArray());
+    }
+
+    /**
+     * Held-Karp 1-tree lower bound on the length of any tour, exact for
+     * small instances. Heuristics can stop once within a tolerance of it,
+     * e.g. with budget.withTarget(bound * 1.01). Leaves stats() alone: the
+     * subgradient is steered by a nearest-neighbor tour, not a restart.
+     */
+    public double lowerBound() {
+        Tour tour = nearestNeighborFrom(idOf(startDistrict));
+        enforceMandatorySequences(tour);
+        return new ExactSolver(this).lowerBound(calculateTourDistance(tour));
+    }
+
+    // (tour length - lower bound) / lower bound
+    public double optimalityGap(Result result) {
+        double bound = new ExactSolver(this).lowerBound(result.distance);
+        return (result.distance - bound) / bound;
+    }
+
+    private void anytimeMultiStart(Budget budget, BestTracker tracker, int workers) {
+        int start = idOf(startDistrict);
+        SplittableRandom root = new SplittableRandom(seed);
+        AtomicInteger iterations = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int w = 0; w < workers; w++) {
+                SplittableRandom random = root.split();
+                futures.add(pool.submit(() -> {
+                    while (!budget.isExhausted(iterations.get(), tracker.startNanos, tracker.distance())) {
+                        int r = iterations.getAndIncrement();
+                        if (r >= budget.maxIterations) break;
+                        Tour tour = restartFrom(random.nextInt(n), start);
+                        stats.iterations.increment();
+                        tracker.offer(tour, score(tour), r);
+                    }
+                }));
+            }
+            for (Future<?> f : futures) f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Search interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search worker failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
         }
-        for (int i = 0; i < idx; i++) {
-            rotated.add(tour.get(i));
+    }
+
+    /**
+     * Stopping rule for anytime solving: a wall-clock limit, an iteration
+     * limit (restarts or kicks), a target distance and an optional stop
+     * signal for cancellation. The search stops at whichever is reached first.
+     */
+    static class Budget {
+        final long timeLimitNanos;
+        final long maxIterations;
+        final double targetDistance;
+        private final BooleanSupplier stop; // null if the run cannot be cancelled
+
+        private Budget(long timeLimitNanos, long maxIterations, double targetDistance, BooleanSupplier stop) {
+            this.timeLimitNanos = timeLimitNanos;
+            this.maxIterations = maxIterations;
+            this.targetDistance = targetDistance;
+            this.stop = stop;
+        }
+
+        static Budget ofMillis(long millis) {
+            return new Budget(TimeUnit.MILLISECONDS.toNanos(millis), Long.MAX_VALUE, 0.0, null);
+        }
+
+        static Budget ofIterations(long iterations) {
+            return new Budget(Long.MAX_VALUE, iterations, 0.0, null);
+        }
+
+        Budget withIterations(long iterations) {
+            return new Budget(timeLimitNanos, iterations, targetDistance, stop);
+        }
+
+        Budget withTarget(double distance) {
+            return new Budget(timeLimitNanos, maxIterations, distance, stop);
+        }
+
+        // Also stop once the signal returns true; it is polled from the workers
+        Budget withStop(BooleanSupplier signal) {
+            return new Budget(timeLimitNanos, maxIterations, targetDistance, signal);
+        }
+
+        // What is left of the time limit of a run started at startNanos, for its later phases
+        Budget remainingSince(long startNanos) {
+            if (timeLimitNanos == Long.MAX_VALUE) return this;
+            long left = Math.max(0, timeLimitNanos - (System.nanoTime() - startNanos));
+            return new Budget(left, maxIterations, targetDistance, stop);
+        }
+
+        boolean isExhausted(long iterations, long startNanos, double bestDistance) {
+            return iterations >= maxIterations
+                    || bestDistance <= targetDistance
+                    || System.nanoTime() - startNanos >= timeLimitNanos
+                    || (stop != null && stop.getAsBoolean());
+        }
+    }
+
+    // Called with each new best tour during anytime solving
+    interface ImprovementListener {
+        void onImprovement(Result best, long iteration, long elapsedMillis);
+    }
+
+    /**
+     * Best tour shared by the workers of one anytime run. Offers are
+     * serialized so the listener sees strictly improving tours in order;
+     * with time windows, tours are ranked by isBetterTour.
+     */
+    static class BestTracker {
+        final long startNanos = System.nanoTime();
+        private final ImprovementListener listener;
+        private final SolverStats stats;
+        private final TimeWindows windows; // null if none are set
+        private Tour tour;
+        private volatile double distance = Double.POSITIVE_INFINITY;
+        private double warp = Double.POSITIVE_INFINITY;
+
+        BestTracker(ImprovementListener listener, SolverStats stats, TimeWindows windows) {
+            this.listener = listener;
+            this.stats = stats;
+            this.windows = windows;
+        }
+
+        double distance() {
+            return distance;
+        }
+
+        synchronized boolean offer(Tour candidate, double dist, long iteration) {
+            if (windows == null && dist >= distance) return false;
+            double w = windows == null ? 0.0 : windows.simulate(candidate).timeWarp;
+            if (!isBetterTour(w, dist, warp, distance)) return false;
+            tour = new Tour(candidate);
+            distance = dist;
+            warp = w;
+            stats.recordBest(dist);
+            if (listener != null) {
+                long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+                listener.onImprovement(new Result(new Tour(tour), dist), iteration, elapsed);
+            }
+            return true;
+        }
+
+        synchronized Result result() {
+            return new Result(tour, distance);
+        }
+    }
+
+    /**
+     * Map a tour back to district names, closed at its start
+     */
+    public List<String> toNames(Tour tour) {
+        List<String> names = new ArrayList<>(tour.size() + 1);
+        for (int d : tour.city) {
+            names.add(allDistricts.get(d));
         }
-        rotated.add(start); // close tour
-        return rotated;
+        names.add(allDistricts.get(tour.city[0]));
+        return names;
     }
 
-    private void printTour(List<String> tour) {
-        if (tour == null) {
+    private void printTour(Tour t) {
+        if (t == null) {
             System.out.println("No valid tour found.");
             return;
         }
+        List<String> tour = toNames(t);
         System.out.println("\n=== Best Tour (Dhaka -> All 64 Districts -> Dhaka) ===");
         double total = 0.0;
         for (int i = 0; i < tour.size() - 1; i++) {
@@ -704,25 +2335,125 @@ public class TSPBangladeshImproved {
         System.out.println("Districts visited: " + (tour.size() - 1));
     }
 
+    /**
+     * Tour as an int[] cycle of district ids plus its inverse.
+     * city[k] is the district at position k; the tour closes back to city[0].
+     */
+    static class Tour {
+        final int[] city;
+        final int[] pos; // pos[d] = position of district d, -1 if not on the tour
+
+        Tour(int[] city, int numDistricts) {
+            this.city = city;
+            this.pos = new int[numDistricts];
+            Arrays.fill(pos, -1);
+            for (int k = 0; k < city.length; k++) pos[city[k]] = k;
+        }
+
+        Tour(Tour other) {
+            city = other.city.clone();
+            pos = other.pos.clone();
+        }
+
+        int size() { return city.length; }
+
+        int next(int d) {
+            int k = pos[d] + 1;
+            return city[k == city.length ? 0 : k];
+        }
+
+        int prev(int d) {
+            int k = pos[d];
+            return city[k == 0 ? city.length - 1 : k - 1];
+        }
+
+        // Reverse positions i..j (inclusive, i <= j)
+        void reverse(int i, int j) {
+            while (i < j) {
+                int a = city[i], b = city[j];
+                city[i] = b; pos[b] = i;
+                city[j] = a; pos[a] = j;
+                i++; j--;
+            }
+        }
+
+        // Move positions i..j so they follow position k (k outside i-1..j),
+        // optionally reversing them; only the span between the two is shifted
+        void moveSegment(int i, int j, int k, boolean reversed) {
+            int len = j - i + 1;
+            int[] segment = Arrays.copyOfRange(city, i, j + 1);
+            int at;
+            if (k > j) {
+                System.arraycopy(city, j + 1, city, i, k - j);
+                at = k - len + 1;
+                for (int p = i; p < at; p++) pos[city[p]] = p;
+            } else {
+                System.arraycopy(city, k + 1, city, k + 1 + len, i - k - 1);
+                at = k + 1;
+                for (int p = at + len; p <= j; p++) pos[city[p]] = p;
+            }
+            for (int q = 0; q < len; q++) {
+                int d = segment[reversed ? len - 1 - q : q];
+                city[at + q] = d;
+                pos[d] = at + q;
+            }
+        }
+
+        // Rotate in place so that district d sits at position 0
+        void rotateTo(int d) {
+            int shift = pos[d];
+            if (shift <= 0) return;
+            int[] rotated = new int[city.length];
+            for (int k = 0; k < city.length; k++) {
+                rotated[k] = city[(k + shift) % city.length];
+            }
+            for (int k = 0; k < city.length; k++) {
+                city[k] = rotated[k];
+                pos[rotated[k]] = k;
+            }
+        }
+    }
+
     static class Result {
-        List<String> tour;
+        Tour tour;
         double distance;
-        Result(List<String> t, double d) { tour = t; distance = d; }
+        Result(Tour t, double d) { tour = t; distance = d; }
     }
 
     public static void main(String[] args) {
         long seed = System.currentTimeMillis();
-        TSPBangladeshImproved tsp = new TSPBangladeshImproved(seed);
+        TSPBangladeshImproved tsp = new TSPBangladeshImproved(seed, Path.of("tsp-distances.bin"));
+        Mode mode = args.length > 0 ? Mode.valueOf(args[0].toUpperCase()) : Mode.MULTI_START;
+        if (args.length > 2) tsp.setConstruction(Construction.valueOf(args[2].toUpperCase()));
 
-        System.out.println("TSP Bangladesh - Improved Solver");
+        System.out.println("TSP Bangladesh - Improved Solver (" + mode + ")");
         System.out.println("Total districts: " + tsp.allDistricts.size());
         System.out.println("\nRunning optimization...\n");
 
         long t0 = System.currentTimeMillis();
-        Result result = tsp.multiStartSearch(100);
+        ExactSolver.Outcome outcome = null;
+        Result result;
+        if (mode == Mode.EXACT) {
+            long millis = args.length > 1 ? Long.parseLong(args[1]) : ExactSolver.DEFAULT_MILLIS;
+            outcome = tsp.solveExact(Budget.ofMillis(millis));
+            result = outcome.best;
+        } else {
+            result = args.length > 1
+                    ? tsp.solveWithin(mode, Budget.ofMillis(Long.parseLong(args[1])), null)
+                    : tsp.solve(mode, 100);
+        }
         long t1 = System.currentTimeMillis();
 
         System.out.println("\nCompleted in " + (t1 - t0) + " ms");
+        System.out.println("Stats: " + tsp.stats());
+        if (outcome == null) {
+            System.out.printf("Optimality gap: %.2f%% (Held-Karp bound)%n", 100 * tsp.optimalityGap(result));
+        } else if (outcome.optimal) {
+            System.out.println("Proven optimal (" + outcome.nodes + " branch-and-bound nodes)");
+        } else {
+            System.out.printf("Not proven optimal: budget exhausted after %d nodes, gap %.2f%% to the lower bound %.1f km%n",
+                    outcome.nodes, 100 * outcome.gap(), outcome.lowerBound);
+        }
         tsp.printTour(result.tour);
     }
 }
\ No newline at end of file
@@ -0,0 +1,346 @@
+import java.util.*;
+
+/**
+ * Service times and opening windows per district, and travel times from the
+ * distance matrix at an average speed per edge type, for tours that leave
+ * the district at position 0 and return to it.
+ *
+ * The distance matrix keeps no road classes, so the edge type of a pair is
+ * whether its distance follows the road graph or is a Haversine estimate
+ * between districts that no road connects. Times are in minutes (e.g. since
+ * midnight). Service may start no earlier than a district opens (the
+ * vehicle waits) and no later than it closes. Lateness is measured as time
+ * warp (Vidal et al.): arriving after closing is charged as the minutes one
+ * would have to go back in time, so a tour is feasible iff its warp is zero.
+ *
+ * Local search checks moves through an Evaluator: each stretch of the tour
+ * is summarized by its duration, time warp and the earliest and latest times
+ * its first service can start, and summaries concatenate in O(1). Disjoint
+ * sparse tables over the tour and the reversed tour give the summary of any
+ * stretch, in either direction, with one concatenation. A 2-opt or Or-opt
+ * move is priced by joining three or four stretches, instead of simulating
+ * the whole tour; the tables are rebuilt in O(n log n) after a move is
+ * applied.
+ */
+class TimeWindows {
+
+    // Edge types by distance source
+    enum EdgeType { ROAD, ESTIMATED }
+
+    static final double DEFAULT_ROAD_SPEED_KMH = 50.0;
+    static final double DEFAULT_ESTIMATED_SPEED_KMH = 30.0;
+    static final double EPS = 1e-6;
+
+    private final TSPBangladeshImproved tsp;
+    private final int n;
+    private final double[] open, close, service;
+    private final double[] minutesPerKm = new double[EdgeType.values().length];
+    private int[] component; // road graph component per district
+
+    TimeWindows(TSPBangladeshImproved tsp) {
+        this.tsp = tsp;
+        this.n = tsp.n;
+        open = new double[n];
+        close = new double[n];
+        service = new double[n];
+        Arrays.fill(close, Double.POSITIVE_INFINITY);
+        setSpeed(EdgeType.ROAD, DEFAULT_ROAD_SPEED_KMH);
+        setSpeed(EdgeType.ESTIMATED, DEFAULT_ESTIMATED_SPEED_KMH);
+        refreshEdgeTypes();
+    }
+
+    /**
+     * Window in which service at the district may start. For the start
+     * district it bounds the departure and the return.
+     */
+    void setWindow(String district, double openMinute, double closeMinute) {
+        if (!(openMinute <= closeMinute)) throw new IllegalArgumentException("Empty window for " + district);
+        int d = tsp.idOf(district);
+        open[d] = openMinute;
+        close[d] = closeMinute;
+    }
+
+    void setServiceMinutes(String district, double minutes) {
+        if (!(minutes >= 0)) throw new IllegalArgumentException("Invalid service time " + minutes + " for " + district);
+        service[tsp.idOf(district)] = minutes;
+    }
+
+    void setSpeed(EdgeType type, double kmh) {
+        if (!(kmh > 0)) throw new IllegalArgumentException("Invalid speed " + kmh + " for " + type);
+        minutesPerKm[type.ordinal()] = 60.0 / kmh;
+    }
+
+    TSPBangladeshImproved owner() {
+        return tsp;
+    }
+
+    // Re-read which pairs the road graph connects, after roads were added or closed
+    void refreshEdgeTypes() {
+        component = tsp.roadComponents();
+    }
+
+    EdgeType edgeType(int a, int b) {
+        return component[a] == component[b] ? EdgeType.ROAD : EdgeType.ESTIMATED;
+    }
+
+    double travelMinutes(int a, int b) {
+        return travelMinutes(a, b, tsp.distance(a, b));
+    }
+
+    // Minutes to drive km from a to b at the speed of the pair's edge type
+    double travelMinutes(int a, int b, double km) {
+        return km * minutesPerKm[edgeType(a, b).ordinal()];
+    }
+
+    // Time service at the district ends when arriving at the given minute (waiting if not yet open)
+    double departAfterService(int district, double arrival) {
+        return Math.max(arrival, open[district]) + service[district];
+    }
+
+    /**
+     * Timetable of a tour leaving its first district when that district
+     * opens (plus its service time) and returning to it.
+     */
+    static final class Schedule {
+        final double[] arrival;      // per tour position
+        final double[] serviceStart; // per tour position, after waiting
+        final double returnTime;
+        final double timeWarp;
+
+        Schedule(double[] arrival, double[] serviceStart, double returnTime, double timeWarp) {
+            this.arrival = arrival;
+            this.serviceStart = serviceStart;
+            this.returnTime = returnTime;
+            this.timeWarp = timeWarp;
+        }
+
+        boolean isFeasible() {
+            return timeWarp <= EPS;
+        }
+    }
+
+    Schedule simulate(TSPBangladeshImproved.Tour tour) {
+        int[] city = tour.city;
+        int m = city.length;
+        double[] arrival = new double[m], start = new double[m];
+        double warp = 0.0;
+        double time = open[city[0]];
+        arrival[0] = start[0] = time;
+        for (int p = 1; p <= m; p++) {
+            int from = city[p - 1], to = city[p == m ? 0 : p];
+            time += service[from] + travelMinutes(from, to);
+            if (p == m) {
+                if (time > close[to]) {
+                    warp += time - close[to];
+                    time = close[to];
+                }
+                return new Schedule(arrival, start, time, warp);
+            }
+            arrival[p] = time;
+            time = Math.max(time, open[to]);
+            if (time > close[to]) {
+                warp += time - close[to];
+                time = close[to];
+            }
+            start[p] = time;
+        }
+        throw new AssertionError();
+    }
+
+    Evaluator evaluator(TSPBangladeshImproved.Tour tour) {
+        return new Evaluator(tour);
+    }
+
+    /**
+     * O(1) time-warp checks of 2-opt and Or-opt moves on one tour. Not
+     * thread-safe; call rebuild() after the tour changes.
+     */
+    final class Evaluator {
+        private final TSPBangladeshImproved.Tour tour;
+        private final int m, levels;
+        private final int[] reversedCity;
+        private final Table forward, backward;
+        private double warp;
+
+        // Accumulated summary of the stretches appended since begin()
+        private boolean empty;
+        private double accDuration, accWarp, accEarliest, accLatest;
+        private int accLast;
+
+        Evaluator(TSPBangladeshImproved.Tour tour) {
+            this.tour = tour;
+            this.m = tour.size();
+            this.levels = Math.max(1, 32 - Integer.numberOfLeadingZeros(Math.max(1, m - 1)));
+            this.reversedCity = new int[m];
+            this.forward = new Table();
+            this.backward = new Table();
+            rebuild();
+        }
+
+        // Time warp of the tour as it is
+        double warp() {
+            return warp;
+        }
+
+        void rebuild() {
+            int[] city = tour.city;
+            for (int p = 0; p < m; p++) reversedCity[p] = city[m - 1 - p];
+            forward.build(city);
+            backward.build(reversedCity);
+            begin();
+            forward(0, m - 1);
+            warp = finish();
+        }
+
+        // Warp after reversing positions i..j (1 <= i <= j < m)
+        double twoOptWarp(int i, int j) {
+            begin();
+            forward(0, i - 1);
+            reversed(i, j);
+            forward(j + 1, m - 1);
+            return finish();
+        }
+
+        // Warp after moving positions i..j to follow position k, as Tour.moveSegment does
+        double orOptWarp(int i, int j, int k, boolean reversedSegment) {
+            begin();
+            if (k > j) {
+                forward(0, i - 1);
+                forward(j + 1, k);
+                segment(i, j, reversedSegment);
+                forward(k + 1, m - 1);
+            } else {
+                forward(0, k);
+                segment(i, j, reversedSegment);
+                forward(k + 1, i - 1);
+                forward(j + 1, m - 1);
+            }
+            return finish();
+        }
+
+        private void segment(int i, int j, boolean reversedSegment) {
+            if (reversedSegment) reversed(i, j);
+            else forward(i, j);
+        }
+
+        private void begin() {
+            empty = true;
+        }
+
+        private void forward(int i, int j) {
+            if (i <= j) forward.append(tour.city, i, j);
+        }
+
+        private void reversed(int i, int j) {
+            if (i <= j) backward.append(reversedCity, m - 1 - j, m - 1 - i);
+        }
+
+        // Close the tour at its first district and return the total warp
+        private double finish() {
+            int depot = tour.city[0];
+            append(0.0, 0.0, open[depot], close[depot], depot, depot);
+            return accWarp;
+        }
+
+        // Concatenate a stretch summary onto the accumulator
+        private void append(double duration, double warp, double earliest, double latest, int first, int last) {
+            if (empty) {
+                accDuration = duration;
+                accWarp = warp;
+                accEarliest = earliest;
+                accLatest = latest;
+                accLast = last;
+                empty = false;
+                return;
+            }
+            double delta = accDuration - accWarp + travelMinutes(accLast, first);
+            double wait = Math.max(earliest - delta - accLatest, 0.0);
+            double late = Math.max(accEarliest + delta - latest, 0.0);
+            accDuration += duration + travelMinutes(accLast, first) + wait;
+            accWarp += warp + late;
+            double e = Math.max(earliest - delta, accEarliest) - wait;
+            accLatest = Math.min(latest - delta, accLatest) + late;
+            accEarliest = e;
+            accLast = last;
+        }
+
+        /**
+         * Disjoint sparse table of stretch summaries over an array of
+         * districts: at level h, for each block of 2^(h+1) positions with
+         * midpoint mid, positions left of mid hold the summary of p..mid-1
+         * and positions right of it the summary of mid..p.
+         */
+        private final class Table {
+            final double[][] duration = new double[levels][m];
+            final double[][] warp = new double[levels][m];
+            final double[][] earliest = new double[levels][m];
+            final double[][] latest = new double[levels][m];
+
+            void build(int[] city) {
+                for (int h = 0; h < levels; h++) {
+                    int half = 1 << h;
+                    for (int mid = half; mid - half < m; mid += 2 * half) {
+                        int lo = mid - half, hi = Math.min(mid + half, m);
+                        if (mid >= m) continue;
+                        // Left half, growing towards lo
+                        set(h, mid - 1, city[mid - 1]);
+                        for (int p = mid - 2; p >= lo; p--) {
+                            int d = city[p];
+                            double t = travelMinutes(d, city[p + 1]);
+                            join(h, p, service[d], 0.0, open[d], close[d], t, p + 1);
+                        }
+                        // Right half, growing towards hi
+                        set(h, mid, city[mid]);
+                        for (int p = mid + 1; p < hi; p++) {
+                            int d = city[p];
+                            double t = travelMinutes(city[p - 1], d);
+                            extend(h, p, p - 1, t, service[d], 0.0, open[d], close[d]);
+                        }
+                    }
+                }
+            }
+
+            private void set(int h, int p, int d) {
+                duration[h][p] = service[d];
+                warp[h][p] = 0.0;
+                earliest[h][p] = open[d];
+                latest[h][p] = close[d];
+            }
+
+            // Entry p = district (duration, warp, earliest, latest) + travel t + entry q
+            private void join(int h, int p, double d1, double w1, double e1, double l1, double t, int q) {
+                double delta = d1 - w1 + t;
+                double wait = Math.max(earliest[h][q] - delta - l1, 0.0);
+                double late = Math.max(e1 + delta - latest[h][q], 0.0);
+                duration[h][p] = d1 + duration[h][q] + t + wait;
+                warp[h][p] = w1 + warp[h][q] + late;
+                earliest[h][p] = Math.max(earliest[h][q] - delta, e1) - wait;
+                latest[h][p] = Math.min(latest[h][q] - delta, l1) + late;
+            }
+
+            // Entry p = entry q + travel t + district (duration, warp, earliest, latest)
+            private void extend(int h, int p, int q, double t, double d2, double w2, double e2, double l2) {
+                double delta = duration[h][q] - warp[h][q] + t;
+                double wait = Math.max(e2 - delta - latest[h][q], 0.0);
+                double late = Math.max(earliest[h][q] + delta - l2, 0.0);
+                duration[h][p] = duration[h][q] + d2 + t + wait;
+                warp[h][p] = warp[h][q] + w2 + late;
+                earliest[h][p] = Math.max(e2 - delta, earliest[h][q]) - wait;
+                latest[h][p] = Math.min(l2 - delta, latest[h][q]) + late;
+            }
+
+            // Append the summary of city[i..j] to the accumulator
+            void append(int[] city, int i, int j) {
+                if (i == j) {
+                    int d = city[i];
+                    Evaluator.this.append(service[d], 0.0, open[d], close[d], d, d);
+                    return;
+                }
+                int h = 31 - Integer.numberOfLeadingZeros(i ^ j);
+                int mid = (j >> h) << h;
+                Evaluator.this.append(duration[h][i], warp[h][i], earliest[h][i], latest[h][i], city[i], city[mid - 1]);
+                Evaluator.this.append(duration[h][j], warp[h][j], earliest[h][j], latest[h][j], city[mid], city[j]);
+            }
+        }
+    }
+}
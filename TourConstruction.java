@@ -0,0 +1,243 @@
+import java.util.*;
+
+/**
+ * Construction heuristics used to seed local search, as alternatives to
+ * nearestNeighborFrom:
+ *
+ *   greedyEdge     shortest candidate edges first, skipping any that would
+ *                  give a district degree three or close a subtour; the
+ *                  remaining fragments are joined nearest endpoint first
+ *   hilbertCurve   districts in the order they are visited by a Hilbert
+ *                  curve over their coordinates
+ *   doubleTree     preorder walk of a minimum spanning tree (the doubled
+ *                  tree with repeated districts shortcut)
+ *
+ * Each takes a variant number so that restarts get different tours: it
+ * perturbs the greedy edge order, the curve orientation and offset, and the
+ * root of the tree walk. Consecutive districts of a mandatory sequence are
+ * linked first by greedyEdge; for all of them the caller re-imposes sequence
+ * order with enforceMandatorySequences.
+ */
+class TourConstruction {
+
+    private static final int HILBERT_ORDER = 16;
+
+    private final TSPBangladeshImproved tsp;
+    private final int n;
+
+    TourConstruction(TSPBangladeshImproved tsp) {
+        this.tsp = tsp;
+        this.n = tsp.n;
+    }
+
+    /**
+     * Greedy edge matching over the candidate lists. Variant 0 uses the exact
+     * lengths; other variants scale each edge by a random factor in [1, 1.1).
+     */
+    TSPBangladeshImproved.Tour greedyEdge(int variant) {
+        int k = tsp.neighbors.length > 0 ? tsp.neighbors[0].length : 0;
+        int[] from = new int[n * k], to = new int[n * k];
+        double[] length = new double[n * k];
+        SplittableRandom random = new SplittableRandom(variant);
+        int m = 0;
+        for (int a = 0; a < n; a++) {
+            for (int b : tsp.neighbors[a]) {
+                // Each candidate pair once: from the smaller id, or from a if b does not list a
+                if (a > b && contains(tsp.neighbors[b], a)) continue;
+                from[m] = a;
+                to[m] = b;
+                length[m] = tsp.distance(a, b) * (variant == 0 ? 1.0 : 1.0 + 0.1 * random.nextDouble());
+                m++;
+            }
+        }
+        Integer[] order = new Integer[m];
+        for (int e = 0; e < m; e++) order[e] = e;
+        Arrays.sort(order, (x, y) -> Double.compare(length[x], length[y]));
+
+        // Two adjacency slots per district, -1 when free
+        int[] link = new int[2 * n];
+        Arrays.fill(link, -1);
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) parent[i] = i;
+        int edges = 0;
+
+        for (int[] sequence : tsp.sequenceIds()) {
+            for (int i = 0; i + 1 < sequence.length; i++) {
+                if (join(link, parent, sequence[i], sequence[i + 1])) edges++;
+            }
+        }
+        for (int e = 0; e < m && edges < n - 1; e++) {
+            if (join(link, parent, from[order[e]], to[order[e]])) edges++;
+        }
+
+        // Join the fragments: from the far end of the current fragment to the
+        // nearest free endpoint of another one. There is no cycle, so some
+        // district has a free slot to start from.
+        boolean[] done = new boolean[n];
+        int[] city = new int[n];
+        int first = 0;
+        while (link[2 * first + 1] >= 0) first++;
+        int size = appendFragment(link, first, city, 0, done);
+        while (size < n) {
+            int current = city[size - 1];
+            int next = -1;
+            double best = Double.POSITIVE_INFINITY;
+            for (int c = 0; c < n; c++) {
+                if (done[c] || link[2 * c + 1] >= 0) continue; // interior districts cannot be entered
+                double d = tsp.distance(current, c);
+                if (d < best) {
+                    best = d;
+                    next = c;
+                }
+            }
+            size = appendFragment(link, next, city, size, done);
+        }
+        return new TSPBangladeshImproved.Tour(city, n);
+    }
+
+    // Append the fragment starting at endpoint start to city; returns the new size
+    private static int appendFragment(int[] link, int start, int[] city, int size, boolean[] done) {
+        int previous = -1, at = start;
+        while (true) {
+            city[size++] = at;
+            done[at] = true;
+            int next = link[2 * at] != previous ? link[2 * at] : link[2 * at + 1];
+            if (next < 0 || done[next]) return size;
+            previous = at;
+            at = next;
+        }
+    }
+
+    // Add edge (a, b) unless either end already has two edges or it closes a cycle
+    private static boolean join(int[] link, int[] parent, int a, int b) {
+        if (link[2 * a + 1] >= 0 || link[2 * b + 1] >= 0) return false;
+        int ra = TSPBangladeshImproved.find(parent, a), rb = TSPBangladeshImproved.find(parent, b);
+        if (ra == rb) return false;
+        parent[ra] = rb;
+        link[link[2 * a] < 0 ? 2 * a : 2 * a + 1] = b;
+        link[link[2 * b] < 0 ? 2 * b : 2 * b + 1] = a;
+        return true;
+    }
+
+    private static boolean contains(int[] list, int d) {
+        for (int x : list) {
+            if (x == d) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Hilbert curve order over the projected coordinates. The variant picks
+     * one of the eight orientations of the curve and shifts it (wrapping
+     * around) by a random offset. Districts without coordinates go last.
+     */
+    TSPBangladeshImproved.Tour hilbertCurve(int variant) {
+        NearestNeighborBuilder.Index index = tsp.spatialIndex();
+        double span = Math.max(index.cols, index.rows) * index.cellSize;
+        int side = 1 << HILBERT_ORDER;
+        SplittableRandom random = new SplittableRandom(variant);
+        double offX = variant < 8 ? 0.0 : random.nextDouble(), offY = variant < 8 ? 0.0 : random.nextDouble();
+
+        long[] keys = new long[n];
+        for (int d = 0; d < n; d++) {
+            long key = Long.MAX_VALUE >>> 20; // after every curve position
+            if (index.cellOf[d] >= 0) {
+                double u = (index.x[d] - index.minX) / span + offX, v = (index.y[d] - index.minY) / span + offY;
+                int x = (int) ((u - Math.floor(u)) * (side - 1)), y = (int) ((v - Math.floor(v)) * (side - 1));
+                if ((variant & 1) != 0) x = side - 1 - x;
+                if ((variant & 2) != 0) y = side - 1 - y;
+                if ((variant & 4) != 0) {
+                    int t = x;
+                    x = y;
+                    y = t;
+                }
+                key = hilbertIndex(x, y, side);
+            }
+            keys[d] = key << 20 | d;
+        }
+        Arrays.sort(keys);
+        int[] city = new int[n];
+        for (int i = 0; i < n; i++) city[i] = (int) (keys[i] & 0xFFFFF);
+        return new TSPBangladeshImproved.Tour(city, n);
+    }
+
+    // Distance along the Hilbert curve of (x, y) in a side x side grid, side a power of two
+    static long hilbertIndex(int x, int y, int side) {
+        long d = 0;
+        for (int s = side >>> 1; s > 0; s >>>= 1) {
+            int rx = (x & s) != 0 ? 1 : 0;
+            int ry = (y & s) != 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = side - 1 - x;
+                    y = side - 1 - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+
+    /**
+     * Double-tree tour: Prim's minimum spanning tree over the distance
+     * matrix, walked in preorder from root with the children of each
+     * district taken closest first.
+     */
+    TSPBangladeshImproved.Tour doubleTree(int root) {
+        int[] parent = new int[n];
+        double[] key = new double[n];
+        boolean[] inTree = new boolean[n];
+        Arrays.fill(key, Double.POSITIVE_INFINITY);
+        Arrays.fill(parent, -1);
+        key[root] = 0.0;
+        int[] childCount = new int[n + 1];
+        for (int step = 0; step < n; step++) {
+            int u = -1;
+            for (int c = 0; c < n; c++) {
+                if (!inTree[c] && (u < 0 || key[c] < key[u])) u = c;
+            }
+            inTree[u] = true;
+            if (parent[u] >= 0) childCount[parent[u] + 1]++;
+            for (int c = 0; c < n; c++) {
+                if (!inTree[c] && tsp.distance(u, c) < key[c]) {
+                    key[c] = tsp.distance(u, c);
+                    parent[c] = u;
+                }
+            }
+        }
+
+        // Children in compressed rows, each row sorted closest first
+        for (int i = 0; i < n; i++) childCount[i + 1] += childCount[i];
+        int[] children = new int[n];
+        int[] fill = Arrays.copyOf(childCount, n);
+        for (int c = 0; c < n; c++) {
+            if (parent[c] >= 0) children[fill[parent[c]]++] = c;
+        }
+        for (int p = 0; p < n; p++) {
+            // Insertion sort; rows are short
+            for (int i = childCount[p] + 1; i < childCount[p + 1]; i++) {
+                int c = children[i];
+                int j = i - 1;
+                while (j >= childCount[p] && key[children[j]] > key[c]) {
+                    children[j + 1] = children[j];
+                    j--;
+                }
+                children[j + 1] = c;
+            }
+        }
+
+        int[] city = new int[n];
+        int[] stack = new int[n];
+        int size = 0, top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            int u = stack[--top];
+            city[size++] = u;
+            for (int i = childCount[u + 1] - 1; i >= childCount[u]; i--) stack[top++] = children[i];
+        }
+        return new TSPBangladeshImproved.Tour(city, n);
+    }
+}
@@ -0,0 +1,472 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Multi-vehicle routing: a fleet of vehicles leaves from one or more depots
+ * and covers every other district. Each vehicle has a stop capacity and a
+ * distance and a duration cap (duration is distance over the vehicle's speed).
+ *
+ * Each restart builds a giant tour with the single-tour machinery
+ * (construction, 2-opt + Or-opt, sequences enforced). It drops the depots
+ * and splits the tour into one route per vehicle, by dynamic programming
+ * over the cut points (Prins' split), for a few rotations of the giant tour;
+ * vehicles take segments in the order their depots appear along it.
+ * No cut falls inside a mandatory sequence, so every sequence stays in one
+ * route, in order. Routes are then improved with 2-opt inside a route
+ * (the reversed segment priced in its new direction) and with relocate and exchange moves between routes, drawn from the candidate
+ * lists. Only districts outside every sequence move between routes, and
+ * 2-opt never reverses two members of one sequence, so the sequences hold
+ * throughout. Restarts run on a fixed pool with one SplittableRandom per
+ * worker.
+ */
+class VehicleRouting {
+
+    static final double DEFAULT_SPEED_KMH = 40.0;
+    // Giant-tour rotations tried by the split of each restart
+    private static final int ROTATIONS = 8;
+    private static final double EPS = 0.001;
+
+    private final TSPBangladeshImproved tsp;
+    private final int n;
+    private final List<Vehicle> fleet;
+    private final int k;
+    private final int[] depot;
+    private final double[] maxKm;
+    private final int[] capacity;
+    private final boolean[] isDepot;
+    private final boolean[] member;     // in some mandatory sequence (depots left out)
+    private final int[][] sequences;    // mandatory sequences without their depots
+    private final int[][] sequencesOf;  // indexes into sequences, per district
+
+    /**
+     * One vehicle: its depot, stop capacity (districts served), distance cap
+     * in km and duration cap in hours at the given average speed.
+     */
+    static final class Vehicle {
+        final String depot;
+        final int capacity;
+        final double maxDistance;
+        final double maxHours;
+        final double speedKmh;
+
+        Vehicle(String depot, int capacity, double maxDistance, double maxHours, double speedKmh) {
+            if (capacity < 1) throw new IllegalArgumentException("capacity must be >= 1");
+            if (speedKmh <= 0) throw new IllegalArgumentException("speedKmh must be > 0");
+            this.depot = Objects.requireNonNull(depot);
+            this.capacity = capacity;
+            this.maxDistance = maxDistance;
+            this.maxHours = maxHours;
+            this.speedKmh = speedKmh;
+        }
+
+        // No limits
+        Vehicle(String depot) {
+            this(depot, Integer.MAX_VALUE, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, DEFAULT_SPEED_KMH);
+        }
+
+        double hours(double km) {
+            return km / speedKmh;
+        }
+    }
+
+    // Route of one vehicle, as district names from its depot back to it
+    static final class Route {
+        final Vehicle vehicle;
+        final List<String> districts;
+        final double distance;
+
+        Route(Vehicle vehicle, List<String> districts, double distance) {
+            this.vehicle = vehicle;
+            this.districts = districts;
+            this.distance = distance;
+        }
+
+        double hours() {
+            return vehicle.hours(distance);
+        }
+    }
+
+    // Routes of the whole fleet, in fleet order (unused vehicles have empty routes)
+    static final class Plan {
+        final List<Route> routes;
+        final double distance;
+
+        Plan(List<Route> routes, double distance) {
+            this.routes = routes;
+            this.distance = distance;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder out = new StringBuilder();
+            for (int v = 0; v < routes.size(); v++) {
+                Route r = routes.get(v);
+                out.append(String.format("Vehicle %d (%d stops, %.1f km, %.1f h): %s%n", v + 1,
+                        r.districts.size() - 2, r.distance, r.hours(), String.join(" -> ", r.districts)));
+            }
+            return out.append(String.format("Total distance: %.1f km", distance)).toString();
+        }
+    }
+
+    VehicleRouting(TSPBangladeshImproved tsp, List<Vehicle> fleet) {
+        if (fleet.isEmpty()) throw new IllegalArgumentException("The fleet is empty");
+        this.tsp = tsp;
+        this.n = tsp.n;
+        this.fleet = List.copyOf(fleet);
+        this.k = fleet.size();
+        depot = new int[k];
+        maxKm = new double[k];
+        capacity = new int[k];
+        isDepot = new boolean[n];
+        for (int v = 0; v < k; v++) {
+            Vehicle vehicle = fleet.get(v);
+            depot[v] = tsp.idOf(vehicle.depot);
+            maxKm[v] = Math.min(vehicle.maxDistance, vehicle.maxHours * vehicle.speedKmh);
+            capacity[v] = vehicle.capacity;
+            isDepot[depot[v]] = true;
+        }
+
+        // A depot is served by being a depot, so it drops out of its sequences
+        int[][] configured = tsp.sequenceIds();
+        sequences = new int[configured.length][];
+        member = new boolean[n];
+        int[] count = new int[n];
+        for (int s = 0; s < configured.length; s++) {
+            sequences[s] = Arrays.stream(configured[s]).filter(d -> !isDepot[d]).toArray();
+            for (int d : sequences[s]) {
+                member[d] = true;
+                count[d]++;
+            }
+        }
+        sequencesOf = new int[n][];
+        for (int d = 0; d < n; d++) sequencesOf[d] = new int[count[d]];
+        Arrays.fill(count, 0);
+        for (int s = 0; s < sequences.length; s++) {
+            for (int d : sequences[s]) sequencesOf[d][count[d]++] = s;
+        }
+    }
+
+    /**
+     * Restart until the budget (counted in restarts) is exhausted and return
+     * the shortest plan. Throws IllegalStateException if no restart found a
+     * plan within the vehicle limits.
+     */
+    Plan solve(TSPBangladeshImproved.Budget budget, long seed) {
+        long startNanos = System.nanoTime();
+        SplittableRandom root = new SplittableRandom(seed);
+        AtomicLong restarts = new AtomicLong();
+        Best best = new Best();
+        int workers = tsp.workers();
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int w = 0; w < workers; w++) {
+                SplittableRandom random = root.split();
+                futures.add(pool.submit(() -> {
+                    while (!budget.isExhausted(restarts.get(), startNanos, best.distance())) {
+                        if (restarts.getAndIncrement() >= budget.maxIterations) break;
+                        Solution s = restart(random);
+                        if (s != null) best.offer(s);
+                    }
+                }));
+            }
+            for (Future<?> f : futures) f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Search interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search worker failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        if (best.plan == null) throw new IllegalStateException("No plan fits the vehicle limits");
+        return best.plan;
+    }
+
+    // Shortest plan so far, shared by the workers
+    private final class Best {
+        private Plan plan;
+        private volatile double distance = Double.POSITIVE_INFINITY;
+
+        double distance() {
+            return distance;
+        }
+
+        synchronized void offer(Solution s) {
+            double total = s.total();
+            if (total >= distance) return;
+            distance = total;
+            plan = s.toPlan();
+            tsp.stats().recordBest(total);
+        }
+    }
+
+    // Giant tour, split at its best rotation, then improved
+    private Solution restart(SplittableRandom random) {
+        TSPBangladeshImproved.Tour tour = tsp.restartFrom(random.nextInt(n), depot[0]);
+        int m = 0;
+        int[] order = new int[n];
+        int[] customersBefore = new int[n];
+        for (int d : tour.city) {
+            if (isDepot[d]) customersBefore[d] = m;
+            else order[m++] = d;
+        }
+        order = Arrays.copyOf(order, m);
+
+        Solution best = null;
+        int tries = Math.min(ROTATIONS, Math.max(1, m));
+        for (int t = 0; t < tries; t++) {
+            int r = t == 0 ? 0 : random.nextInt(m);
+            int[] rotated = new int[m];
+            for (int i = 0; i < m; i++) rotated[i] = order[(r + i) % m];
+            // Vehicles take segments in the order their depots appear along the rotated tour
+            Integer[] vehicles = new Integer[k];
+            for (int v = 0; v < k; v++) vehicles[v] = v;
+            int shift = r, size = Math.max(1, m);
+            Arrays.sort(vehicles, Comparator.comparingInt(v -> Math.floorMod(customersBefore[depot[v]] - shift, size)));
+            Solution s = split(rotated, vehicles);
+            if (s != null && (best == null || s.total() < best.total())) best = s;
+        }
+        if (best != null) best.improve();
+        return best;
+    }
+
+    /**
+     * Optimal split of the customer order into consecutive routes for the
+     * vehicles in the given order (a vehicle may take none), or null if the
+     * order breaks a sequence or no split fits the limits.
+     */
+    private Solution split(int[] order, Integer[] vehicles) {
+        int m = order.length;
+        int[] position = new int[n];
+        for (int i = 0; i < m; i++) position[order[i]] = i;
+        boolean[] blocked = new boolean[m + 1]; // no cut just before position p
+        for (int[] sequence : sequences) {
+            for (int q = 0; q + 1 < sequence.length; q++) {
+                int from = position[sequence[q]], to = position[sequence[q + 1]];
+                if (from > to) return null;
+                for (int p = from + 1; p <= to; p++) blocked[p] = true;
+            }
+        }
+
+        double[][] best = new double[k + 1][m + 1];
+        int[][] from = new int[k + 1][m + 1];
+        for (double[] row : best) Arrays.fill(row, Double.POSITIVE_INFINITY);
+        best[0][0] = 0.0;
+        for (int v = 0; v < k; v++) {
+            int vehicle = vehicles[v], home = depot[vehicle];
+            for (int i = 0; i <= m; i++) {
+                best[v + 1][i] = best[v][i];
+                from[v + 1][i] = i;
+            }
+            for (int j = 0; j < m; j++) {
+                if (best[v][j] == Double.POSITIVE_INFINITY || blocked[j]) continue;
+                double path = tsp.distance(home, order[j]);
+                for (int i = j + 1; i <= m && i - j <= capacity[vehicle] && path <= maxKm[vehicle]; i++) {
+                    if (i > j + 1) path += tsp.distance(order[i - 2], order[i - 1]);
+                    double length = path + tsp.distance(order[i - 1], home);
+                    if (length > maxKm[vehicle] || (i < m && blocked[i])) continue;
+                    if (best[v][j] + length < best[v + 1][i]) {
+                        best[v + 1][i] = best[v][j] + length;
+                        from[v + 1][i] = j;
+                    }
+                }
+            }
+        }
+        if (best[k][m] == Double.POSITIVE_INFINITY) return null;
+
+        Solution s = new Solution(m);
+        for (int v = k, i = m; v > 0; v--) {
+            int j = from[v][i];
+            for (int p = j; p < i; p++) s.append(vehicles[v - 1], order[p]);
+            i = j;
+        }
+        return s;
+    }
+
+    // Routes under construction or improvement; stops exclude the depots
+    private final class Solution {
+        final int[][] stops;
+        final int[] size = new int[k];
+        final double[] length = new double[k];
+        final int[] routeOf = new int[n];
+        final int[] indexOf = new int[n];
+        private final int[] seen = new int[sequences.length];
+        private int stamp;
+
+        Solution(int customers) {
+            stops = new int[k][customers];
+        }
+
+        double total() {
+            double sum = 0.0;
+            for (double l : length) sum += l;
+            return sum;
+        }
+
+        // District at index i of route r, the depot outside the stops
+        int at(int r, int i) {
+            return i < 0 || i >= size[r] ? depot[r] : stops[r][i];
+        }
+
+        void append(int r, int d) {
+            int i = size[r]++;
+            length[r] += tsp.distance(at(r, i - 1), d) + tsp.distance(d, depot[r]) - tsp.distance(at(r, i - 1), depot[r]);
+            stops[r][i] = d;
+            routeOf[d] = r;
+            indexOf[d] = i;
+        }
+
+        // 2-opt, relocate and exchange until none improves; lengths are then re-measured
+        void improve() {
+            boolean improved = true;
+            while (improved) {
+                improved = false;
+                for (int r = 0; r < k; r++) improved |= twoOpt(r);
+                for (int u = 0; u < n; u++) {
+                    if (isDepot[u] || member[u]) continue;
+                    improved |= relocate(u) || exchange(u);
+                }
+            }
+            for (int r = 0; r < k; r++) length[r] = measure(r);
+        }
+
+        private double measure(int r) {
+            if (size[r] == 0) return 0.0;
+            double sum = 0.0;
+            for (int i = 0; i <= size[r]; i++) sum += tsp.distance(at(r, i - 1), at(r, i));
+            return sum;
+        }
+
+        private void reverse(int r, int i, int j) {
+            int[] s = stops[r];
+            while (i < j) {
+                int a = s[i], b = s[j];
+                s[i] = b;
+                indexOf[b] = i++;
+                s[j] = a;
+                indexOf[a] = j--;
+            }
+        }
+
+        // First-improvement 2-opt inside route r, never reversing two members of one sequence
+        private boolean twoOpt(int r) {
+            boolean any = false, improved = true;
+            while (improved) {
+                improved = false;
+                for (int i = 0; i < size[r] && !improved; i++) {
+                    stamp++;
+                    int a = at(r, i - 1), b = stops[r][i];
+                    double inner = 0.0; // change of the segment's own arcs when reversed (0 if symmetric)
+                    for (int j = i; j < size[r]; j++) {
+                        int c = stops[r][j];
+                        if (conflicts(c)) break;
+                        if (j == i) continue;
+                        int d = at(r, j + 1), before = stops[r][j - 1];
+                        inner += tsp.distance(c, before) - tsp.distance(before, c);
+                        double delta = tsp.distance(a, c) + tsp.distance(b, d) - tsp.distance(a, b) - tsp.distance(c, d)
+                                + inner;
+                        if (delta < -EPS) {
+                            reverse(r, i, j);
+                            length[r] += delta;
+                            improved = any = true;
+                            break;
+                        }
+                    }
+                }
+            }
+            return any;
+        }
+
+        // Mark c's sequences as seen in the current segment; true if one already was
+        private boolean conflicts(int c) {
+            for (int s : sequencesOf[c]) {
+                if (seen[s] == stamp) return true;
+                seen[s] = stamp;
+            }
+            return false;
+        }
+
+        // Move u next to one of its candidates in another route (or next to an empty vehicle's depot)
+        private boolean relocate(int u) {
+            int a = routeOf[u], i = indexOf[u];
+            double gain = tsp.distance(at(a, i - 1), u) + tsp.distance(u, at(a, i + 1))
+                    - tsp.distance(at(a, i - 1), at(a, i + 1));
+            for (int c : tsp.neighbors[u]) {
+                if (isDepot[c]) {
+                    for (int b = 0; b < k; b++) {
+                        if (b == a || depot[b] != c) continue;
+                        if (tryInsert(u, a, gain, b, 0) || tryInsert(u, a, gain, b, size[b])) return true;
+                    }
+                } else if (routeOf[c] != a) {
+                    int b = routeOf[c], j = indexOf[c];
+                    if (tryInsert(u, a, gain, b, j) || tryInsert(u, a, gain, b, j + 1)) return true;
+                }
+            }
+            return false;
+        }
+
+        // Insert u from route a (saving gain) at index j of route b, if shorter and within limits
+        private boolean tryInsert(int u, int a, double gain, int b, int j) {
+            if (size[b] + 1 > capacity[b]) return false;
+            int x = at(b, j - 1), y = at(b, j);
+            double add = tsp.distance(x, u) + tsp.distance(u, y) - tsp.distance(x, y);
+            if (add - gain >= -EPS || length[b] + add > maxKm[b] || length[a] - gain > maxKm[a]) return false;
+            int i = indexOf[u];
+            System.arraycopy(stops[a], i + 1, stops[a], i, size[a] - i - 1);
+            size[a]--;
+            for (int p = i; p < size[a]; p++) indexOf[stops[a][p]] = p;
+            System.arraycopy(stops[b], j, stops[b], j + 1, size[b] - j);
+            stops[b][j] = u;
+            size[b]++;
+            for (int p = j; p < size[b]; p++) indexOf[stops[b][p]] = p;
+            routeOf[u] = b;
+            length[a] -= gain;
+            length[b] += add;
+            return true;
+        }
+
+        // Swap u with a district next to one of u's candidates in another route
+        private boolean exchange(int u) {
+            int a = routeOf[u], i = indexOf[u];
+            for (int c : tsp.neighbors[u]) {
+                if (isDepot[c] || routeOf[c] == a) continue;
+                int b = routeOf[c];
+                for (int j = indexOf[c] - 1; j <= indexOf[c] + 1; j += 2) {
+                    if (j < 0 || j >= size[b]) continue;
+                    int v = stops[b][j];
+                    if (member[v]) continue;
+                    int pa = at(a, i - 1), na = at(a, i + 1), pb = at(b, j - 1), nb = at(b, j + 1);
+                    double newA = length[a] - tsp.distance(pa, u) - tsp.distance(u, na) + tsp.distance(pa, v) + tsp.distance(v, na);
+                    double newB = length[b] - tsp.distance(pb, v) - tsp.distance(v, nb) + tsp.distance(pb, u) + tsp.distance(u, nb);
+                    if (newA + newB >= length[a] + length[b] - EPS || newA > maxKm[a] || newB > maxKm[b]) continue;
+                    stops[a][i] = v;
+                    stops[b][j] = u;
+                    routeOf[v] = a;
+                    indexOf[v] = i;
+                    routeOf[u] = b;
+                    indexOf[u] = j;
+                    length[a] = newA;
+                    length[b] = newB;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        Plan toPlan() {
+            List<Route> routes = new ArrayList<>(k);
+            double sum = 0.0;
+            for (int r = 0; r < k; r++) {
+                List<String> names = new ArrayList<>(size[r] + 2);
+                names.add(tsp.allDistricts.get(depot[r]));
+                for (int i = 0; i < size[r]; i++) names.add(tsp.allDistricts.get(stops[r][i]));
+                names.add(tsp.allDistricts.get(depot[r]));
+                routes.add(new Route(fleet.get(r), names, length[r]));
+                sum += length[r];
+            }
+            return new Plan(routes, sum);
+        }
+    }
+}